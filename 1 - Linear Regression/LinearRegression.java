@@ -1,41 +1,289 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class LinearRegression {
+    private static final int MODEL_MAGIC = 0x4C56414A; // "JAVL" read little-endian
 
     private double theta0 = 0, theta1 = 0;  // Model parameters
     private double learningRate = 0.03;     // Rate of gradient descent
     private int iterations = 1000;        // Number of iterations for training
+    private double beta1 = 0.9, beta2 = 0.999;  // Decay rates for momentum / Adam
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private final EpochStats.Probe probe = new EpochStats.Probe();
+
+    // Early stopping; every criterion except the iteration cap is off until set
+    private final StoppingCriteria stopping = new StoppingCriteria();
+    private final double[] slope = new double[1]; // theta1, as the weight vector StoppingCriteria checks
+    private StoppingCriteria.Reason stopReason;
+    private int epochsRun;
+
+    // Receives every training epoch (one iteration of train, one shuffled pass of trainMiniBatch)
+    // with its wall time, mean squared error and gradient norm
+    public void addListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public void setLossTolerance(double relativeChange) {
+        stopping.lossTolerance(relativeChange);
+    }
+
+    public void setGradientTolerance(double norm) {
+        stopping.gradientTolerance(norm);
+    }
+
+    public void setTimeBudgetMillis(long millis) {
+        stopping.timeBudget(millis);
+    }
+
+    // Stops once the mse on (x, y) has not improved for patience epochs and restores the best parameters
+    public void setValidation(double[] x, double[] y, int patience) {
+        stopping.validation(x == null ? null : (w, b) -> mse(x, y, 0, x.length, b, w[0]), patience);
+    }
+
+    public StoppingCriteria.Reason getStopReason() {
+        return stopReason;
+    }
+
+    public int getEpochsRun() {
+        return epochsRun;
+    }
+
+    private void startRun(int maxEpochs) {
+        stopping.maxEpochs(maxEpochs).start();
+        stopReason = null;
+        epochsRun = 0;
+    }
+
+    // Checked after every epoch; returns why training should stop, or null to continue. Stopping
+    // on validation patience restores the best parameters seen
+    private StoppingCriteria.Reason checkStop(int epoch, double loss, double gradientNorm) {
+        epochsRun = epoch;
+        slope[0] = theta1;
+        StoppingCriteria.Reason reason = stopping.check(epoch, loss, gradientNorm, slope, theta0);
+        if (reason == StoppingCriteria.Reason.VALIDATION_PATIENCE && stopping.bestWeights != null) {
+            theta1 = stopping.bestWeights[0];
+            theta0 = stopping.bestBias;
+        }
+        return reason;
+    }
+
+    private void notifyListeners(String trainer, int epoch, int samples, double loss, double gradientNorm) {
+        if (listeners.isEmpty())
+            return;
+        EpochStats stats = probe.finish(trainer, epoch, samples, loss, gradientNorm);
+        for (TrainingListener listener : listeners)
+            listener.onEpoch(stats);
+    }
 
     public void train(double[] x, double[] y) {
-        int m = x.length;
-        for (int iter = 0; iter < iterations; iter++) {
-            double grad0 = 0, grad1 = 0;
-            for (int i = 0; i < m; i++) {
+        train(x, y, 0, 0);
+    }
+
+    // Trains on every sample except [skipFrom, skipTo), e.g. all but one cross-validation fold,
+    // without copying the arrays
+    public void train(double[] x, double[] y, int skipFrom, int skipTo) {
+        int m = x.length - (skipTo - skipFrom);
+        startRun(iterations);
+        for (int iter = 0; stopReason == null; iter++) {
+            if (!listeners.isEmpty())
+                probe.start();
+            double grad0 = 0, grad1 = 0, loss = 0;
+            for (int i = skipFrom == 0 ? skipTo : 0; i < x.length; i = i + 1 == skipFrom ? skipTo : i + 1) {
                 double prediction = theta0 + theta1 * x[i];
                 double error = prediction - y[i];
                 grad0 += error;
                 grad1 += error * x[i];
+                loss += error * error;
             }
             grad0 /= m;
             grad1 /= m;
             theta0 -= learningRate * grad0;
             theta1 -= learningRate * grad1;
+            notifyListeners("linear-gradient-descent", iter + 1, m, loss / m, Math.hypot(grad0, grad1));
+            stopReason = checkStop(iter + 1, loss / m, Math.hypot(grad0, grad1));
+        }
+    }
+
+    // Exact least-squares fit in a single pass: theta1 = cov(x, y) / var(x), theta0 = mean(y) - theta1 * mean(x).
+    // Means and co-moments are updated incrementally (Welford) to stay accurate on large values.
+    public void fitClosedForm(double[] x, double[] y) {
+        double meanX = 0, meanY = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < x.length; i++) {
+            double dx = x[i] - meanX;
+            meanX += dx / (i + 1);
+            meanY += (y[i] - meanY) / (i + 1);
+            sxx += dx * (x[i] - meanX);
+            sxy += dx * (y[i] - meanY);
+        }
+        theta1 = sxx == 0 ? 0 : sxy / sxx;
+        theta0 = meanY - theta1 * meanX;
+    }
+
+    // Mini-batch training: every epoch visits the samples in a new random order and updates
+    // the parameters after each batch (batchSize = 1 is plain SGD). Uses Adam when adam is
+    // true, otherwise classical momentum.
+    public void trainMiniBatch(double[] x, double[] y, int batchSize, int epochs, boolean adam) {
+        int m = x.length;
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        Random random = new Random(42);
+
+        double m0 = 0, m1 = 0;  // Velocity (momentum) or first moment (Adam)
+        double v0 = 0, v1 = 0;  // Second moment (Adam only)
+        int step = 0;
+        startRun(epochs);
+        for (int epoch = 0; stopReason == null; epoch++) {
+            if (!listeners.isEmpty())
+                probe.start();
+            double epochGrad0 = 0, epochGrad1 = 0, loss = 0;
+            shuffle(order, random);
+            for (int start = 0; start < m; start += batchSize) {
+                int end = Math.min(start + batchSize, m);
+                double grad0 = 0, grad1 = 0;
+                for (int k = start; k < end; k++) {
+                    int i = order[k];
+                    double error = theta0 + theta1 * x[i] - y[i];
+                    grad0 += error;
+                    grad1 += error * x[i];
+                    loss += error * error;
+                }
+                epochGrad0 += grad0;
+                epochGrad1 += grad1;
+                grad0 /= end - start;
+                grad1 /= end - start;
+
+                step++;
+                if (adam) {
+                    m0 = beta1 * m0 + (1 - beta1) * grad0;
+                    m1 = beta1 * m1 + (1 - beta1) * grad1;
+                    v0 = beta2 * v0 + (1 - beta2) * grad0 * grad0;
+                    v1 = beta2 * v1 + (1 - beta2) * grad1 * grad1;
+                    double c1 = 1 - Math.pow(beta1, step), c2 = 1 - Math.pow(beta2, step);
+                    theta0 -= learningRate * (m0 / c1) / (Math.sqrt(v0 / c2) + 1e-8);
+                    theta1 -= learningRate * (m1 / c1) / (Math.sqrt(v1 / c2) + 1e-8);
+                } else {
+                    m0 = beta1 * m0 + grad0;
+                    m1 = beta1 * m1 + grad1;
+                    theta0 -= learningRate * m0;
+                    theta1 -= learningRate * m1;
+                }
+            }
+            double gradientNorm = Math.hypot(epochGrad0 / m, epochGrad1 / m);
+            notifyListeners(adam ? "linear-mini-batch-adam" : "linear-mini-batch-momentum", epoch + 1, m, loss / m, gradientNorm);
+            stopReason = checkStop(epoch + 1, loss / m, gradientNorm);
+        }
+    }
+
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[k];
+            order[k] = tmp;
         }
     }
 
+    // Mean squared error of the current parameters
+    public double mse(double[] x, double[] y) {
+        return mse(x, y, 0, x.length);
+    }
+
+    // Mean squared error over samples [from, to)
+    public double mse(double[] x, double[] y, int from, int to) {
+        return mse(x, y, from, to, theta0, theta1);
+    }
+
+    private static double mse(double[] x, double[] y, int from, int to, double t0, double t1) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double error = t0 + t1 * x[i] - y[i];
+            sum += error * error;
+        }
+        return sum / (to - from);
+    }
+
     public double predict(double x) {
         return theta0 + theta1 * x;
     }
 
-    public static void main(String[] args) {
+    // Predicts every x into out without allocating. The parameters are read once up front,
+    // so a whole batch is scored against one consistent (theta0, theta1) pair.
+    public void predictBatch(double[] x, double[] out) {
+        double t0 = theta0, t1 = theta1;
+        for (int i = 0; i < x.length; i++)
+            out[i] = t0 + t1 * x[i];
+    }
+
+    // Writes theta0/theta1 in ModelIO's single-feature parameter format under MODEL_MAGIC
+    public void save(String path) throws IOException {
+        ModelIO.saveParameters(path, MODEL_MAGIC, theta0, theta1);
+    }
+
+    // Reads a model written by save() through a memory mapping; no training data is needed
+    public static LinearRegression load(String path) throws IOException {
+        double[] theta = ModelIO.loadParameters(path, MODEL_MAGIC);
+        LinearRegression model = new LinearRegression();
+        model.theta0 = theta[0];
+        model.theta1 = theta[1];
+        return model;
+    }
+
+    public static void main(String[] args) throws IOException {
         //Here is a simple example to train the model with. y = 2x (Perfect Linear)
         double[] x = {1, 2, 3, 4, 5};
         double[] y = {2, 4, 6, 8, 10};  
 
         //Here is where we create the model and train it
         LinearRegression model = new LinearRegression();
+        model.addListener(stats -> {
+            if (stats.epoch % 250 == 0)
+                System.out.printf("Epoch %d - MSE %.6f, |grad| %.2e, %.1f us%n", stats.epoch, stats.loss,
+                        stats.gradientNorm, stats.nanos / 1e3);
+        });
         model.train(x, y); // The "machine learning" step
 
         System.out.println("Learned theta0: " + model.theta0);
         System.out.println("Learned theta1: " + model.theta1);
         System.out.println("Prediction for 7: " + model.predict(7));
+
+        //Compare full batch against mini-batch SGD with Adam on loss reached per unit of time
+        long start = System.nanoTime();
+        LinearRegression fullBatch = new LinearRegression();
+        fullBatch.train(x, y);
+        System.out.printf("Full batch: MSE %.6f in %.3f ms%n", fullBatch.mse(x, y), (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        LinearRegression miniBatch = new LinearRegression();
+        miniBatch.trainMiniBatch(x, y, 2, 300, true);
+        System.out.printf("Mini-batch Adam: MSE %.6f in %.3f ms%n", miniBatch.mse(x, y), (System.nanoTime() - start) / 1e6);
+
+        // Same full-batch training, stopped once the gradient has flattened out
+        start = System.nanoTime();
+        LinearRegression early = new LinearRegression();
+        early.setGradientTolerance(5e-3);
+        early.train(x, y);
+        System.out.printf("Early stopping: MSE %.6f after %d iterations (%s) in %.3f ms%n", early.mse(x, y),
+                early.getEpochsRun(), early.getStopReason(), (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        LinearRegression closedForm = new LinearRegression();
+        closedForm.fitClosedForm(x, y);
+        System.out.printf("Closed form: MSE %.6f in %.3f ms%n", closedForm.mse(x, y), (System.nanoTime() - start) / 1e6);
+
+        // Round-trip the trained parameters through the binary model format
+        Path saved = Path.of(System.getProperty("java.io.tmpdir"), "linearregression.model");
+        model.save(saved.toString());
+        System.out.println("Reloaded model gives: " + load(saved.toString()).predict(7));
     }
 }
@@ -1,30 +1,215 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class LogisticRegression {
+    private static final int MODEL_MAGIC = 0x4756414A; // "JAVG" read little-endian
     private double theta0 = 0, theta1 = 0;
     private double learningRate = 0.1;
     private int iterations = 1000;
+    private double beta1 = 0.9, beta2 = 0.999;  // Decay rates for momentum / Adam
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private final EpochStats.Probe probe = new EpochStats.Probe();
+
+    // Early stopping; every criterion except the iteration cap is off until set
+    private final StoppingCriteria stopping = new StoppingCriteria();
+    private final double[] slope = new double[1]; // theta1, as the weight vector StoppingCriteria checks
+    private StoppingCriteria.Reason stopReason;
+    private int epochsRun;
+
+    // Receives every training epoch (one iteration of train, one shuffled pass of trainMiniBatch)
+    // with its wall time, mean cross-entropy and gradient norm
+    public void addListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public void setLossTolerance(double relativeChange) {
+        stopping.lossTolerance(relativeChange);
+    }
+
+    public void setGradientTolerance(double norm) {
+        stopping.gradientTolerance(norm);
+    }
+
+    public void setTimeBudgetMillis(long millis) {
+        stopping.timeBudget(millis);
+    }
+
+    // Stops once the logLoss on (x, y) has not improved for patience epochs and restores the best parameters
+    public void setValidation(double[] x, int[] y, int patience) {
+        stopping.validation(x == null ? null : (w, b) -> logLoss(x, y, 0, x.length, b, w[0]), patience);
+    }
 
-    private double sigmoid(double z) {
+    public StoppingCriteria.Reason getStopReason() {
+        return stopReason;
+    }
+
+    public int getEpochsRun() {
+        return epochsRun;
+    }
+
+    private void startRun(int maxEpochs) {
+        stopping.maxEpochs(maxEpochs).start();
+        stopReason = null;
+        epochsRun = 0;
+    }
+
+    // Checked after every epoch; returns why training should stop, or null to continue. Stopping
+    // on validation patience restores the best parameters seen
+    private StoppingCriteria.Reason checkStop(int epoch, double loss, double gradientNorm) {
+        epochsRun = epoch;
+        slope[0] = theta1;
+        StoppingCriteria.Reason reason = stopping.check(epoch, loss, gradientNorm, slope, theta0);
+        if (reason == StoppingCriteria.Reason.VALIDATION_PATIENCE && stopping.bestWeights != null) {
+            theta1 = stopping.bestWeights[0];
+            theta0 = stopping.bestBias;
+        }
+        return reason;
+    }
+
+    private void notifyListeners(String trainer, int epoch, int samples, double loss, double gradientNorm) {
+        if (listeners.isEmpty())
+            return;
+        EpochStats stats = probe.finish(trainer, epoch, samples, loss, gradientNorm);
+        for (TrainingListener listener : listeners)
+            listener.onEpoch(stats);
+    }
+
+    private static double sigmoid(double z) {
         return 1.0 / (1.0 + Math.exp(-z));
     }
 
     public void train(double[] x, int[] y) {
-        int m = x.length;
-        for (int iter = 0; iter < iterations; iter++) {
-            double grad0 = 0, grad1 = 0;
-            for (int i = 0; i < m; i++) {
+        train(x, y, 0, 0);
+    }
+
+    // Trains on every sample except [skipFrom, skipTo), e.g. all but one cross-validation fold,
+    // without copying the arrays
+    public void train(double[] x, int[] y, int skipFrom, int skipTo) {
+        int m = x.length - (skipTo - skipFrom);
+        boolean trackLoss = !listeners.isEmpty() || stopping.usesLoss(); // cross-entropy costs a log per sample
+        startRun(iterations);
+        for (int iter = 0; stopReason == null; iter++) {
+            if (!listeners.isEmpty())
+                probe.start();
+            double grad0 = 0, grad1 = 0, loss = 0;
+            for (int i = skipFrom == 0 ? skipTo : 0; i < x.length; i = i + 1 == skipFrom ? skipTo : i + 1) {
                 double z = theta0 + theta1 * x[i];
                 double prediction = sigmoid(z);
                 double error = prediction - y[i];
                 grad0 += error;
                 grad1 += error * x[i];
+                if (trackLoss)
+                    loss += crossEntropy(prediction, y[i]);
             }
             grad0 /= m;
             grad1 /= m;
             theta0 -= learningRate * grad0;
             theta1 -= learningRate * grad1;
+            notifyListeners("logistic-gradient-descent", iter + 1, m, loss / m, Math.hypot(grad0, grad1));
+            stopReason = checkStop(iter + 1, loss / m, Math.hypot(grad0, grad1));
         }
     }
 
+    // Mini-batch training: every epoch visits the samples in a new random order and updates
+    // the parameters after each batch (batchSize = 1 is plain SGD). Uses Adam when adam is
+    // true, otherwise classical momentum.
+    public void trainMiniBatch(double[] x, int[] y, int batchSize, int epochs, boolean adam) {
+        int m = x.length;
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        Random random = new Random(42);
+
+        double m0 = 0, m1 = 0;  // Velocity (momentum) or first moment (Adam)
+        double v0 = 0, v1 = 0;  // Second moment (Adam only)
+        int step = 0;
+        boolean trackLoss = !listeners.isEmpty() || stopping.usesLoss();
+        startRun(epochs);
+        for (int epoch = 0; stopReason == null; epoch++) {
+            if (!listeners.isEmpty())
+                probe.start();
+            double epochGrad0 = 0, epochGrad1 = 0, loss = 0;
+            shuffle(order, random);
+            for (int start = 0; start < m; start += batchSize) {
+                int end = Math.min(start + batchSize, m);
+                double grad0 = 0, grad1 = 0;
+                for (int k = start; k < end; k++) {
+                    int i = order[k];
+                    double prediction = sigmoid(theta0 + theta1 * x[i]);
+                    double error = prediction - y[i];
+                    grad0 += error;
+                    grad1 += error * x[i];
+                    if (trackLoss)
+                        loss += crossEntropy(prediction, y[i]);
+                }
+                epochGrad0 += grad0;
+                epochGrad1 += grad1;
+                grad0 /= end - start;
+                grad1 /= end - start;
+
+                step++;
+                if (adam) {
+                    m0 = beta1 * m0 + (1 - beta1) * grad0;
+                    m1 = beta1 * m1 + (1 - beta1) * grad1;
+                    v0 = beta2 * v0 + (1 - beta2) * grad0 * grad0;
+                    v1 = beta2 * v1 + (1 - beta2) * grad1 * grad1;
+                    double c1 = 1 - Math.pow(beta1, step), c2 = 1 - Math.pow(beta2, step);
+                    theta0 -= learningRate * (m0 / c1) / (Math.sqrt(v0 / c2) + 1e-8);
+                    theta1 -= learningRate * (m1 / c1) / (Math.sqrt(v1 / c2) + 1e-8);
+                } else {
+                    m0 = beta1 * m0 + grad0;
+                    m1 = beta1 * m1 + grad1;
+                    theta0 -= learningRate * m0;
+                    theta1 -= learningRate * m1;
+                }
+            }
+            double gradientNorm = Math.hypot(epochGrad0 / m, epochGrad1 / m);
+            notifyListeners(adam ? "logistic-mini-batch-adam" : "logistic-mini-batch-momentum", epoch + 1, m, loss / m, gradientNorm);
+            stopReason = checkStop(epoch + 1, loss / m, gradientNorm);
+        }
+    }
+
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[k];
+            order[k] = tmp;
+        }
+    }
+
+    private static double crossEntropy(double p, int y) {
+        p = Math.min(Math.max(p, 1e-15), 1 - 1e-15);
+        return y == 1 ? -Math.log(p) : -Math.log(1 - p);
+    }
+
+    // Average cross-entropy of the current parameters
+    public double logLoss(double[] x, int[] y) {
+        return logLoss(x, y, 0, x.length);
+    }
+
+    // Average cross-entropy over samples [from, to)
+    public double logLoss(double[] x, int[] y, int from, int to) {
+        return logLoss(x, y, from, to, theta0, theta1);
+    }
+
+    private static double logLoss(double[] x, int[] y, int from, int to, double t0, double t1) {
+        double sum = 0;
+        for (int i = from; i < to; i++)
+            sum += crossEntropy(sigmoid(t0 + t1 * x[i]), y[i]);
+        return sum / (to - from);
+    }
+
     public double predictProbability(double x) {
         double z = theta0 + theta1 * x;
         return sigmoid(z);
@@ -34,17 +219,76 @@ public class LogisticRegression {
         return predictProbability(x) >= 0.5 ? 1 : 0;
     }
 
-    public static void main(String[] args) {
+    // Probabilities for every x into out without allocating. The parameters are read once up
+    // front, so a whole batch is scored against one consistent (theta0, theta1) pair.
+    public void predictBatch(double[] x, double[] out) {
+        double t0 = theta0, t1 = theta1;
+        for (int i = 0; i < x.length; i++)
+            out[i] = sigmoid(t0 + t1 * x[i]);
+    }
+
+    // Writes theta0/theta1 in ModelIO's single-feature parameter format under MODEL_MAGIC
+    public void save(String path) throws IOException {
+        ModelIO.saveParameters(path, MODEL_MAGIC, theta0, theta1);
+    }
+
+    // Writes the model as a ModelIO snapshot (logistic, one feature named "x", mean 0 / std 1) so
+    // the multi-feature project's ScoringServer can serve it
+    public void exportForServing(String path) throws IOException {
+        ModelSnapshot snapshot = new ModelSnapshot(1, new double[] {theta1}, theta0, new double[] {0},
+                new double[] {1}, new String[] {"x"}, true);
+        ModelIO.save(snapshot, path);
+    }
+
+    // Reads a model written by save() through a memory mapping; no training data is needed
+    public static LogisticRegression load(String path) throws IOException {
+        double[] theta = ModelIO.loadParameters(path, MODEL_MAGIC);
+        LogisticRegression model = new LogisticRegression();
+        model.theta0 = theta[0];
+        model.theta1 = theta[1];
+        return model;
+    }
+
+    public static void main(String[] args) throws IOException {
         // Simple example dataset: x = feature, y = class label (0 or 1)
         double[] x = {1, 2, 3, 4, 5};
         int[] y = {0, 0, 0, 1, 1};  // Class changes between 3 and 4
 
         LogisticRegression model = new LogisticRegression();
+        model.addListener(stats -> {
+            if (stats.epoch % 250 == 0)
+                System.out.printf("Epoch %d - log loss %.6f, |grad| %.2e, %.1f us%n", stats.epoch, stats.loss,
+                        stats.gradientNorm, stats.nanos / 1e3);
+        });
         model.train(x, y);
 
         System.out.println("Prediction probability for 2.5: " + model.predictProbability(2.5));
         System.out.println("Prediction class for 2.5: " + model.predictClass(2.5));
         System.out.println("Prediction probability for 4.5: " + model.predictProbability(4.5));
         System.out.println("Prediction class for 4.5: " + model.predictClass(4.5));
+
+        // Compare full batch against mini-batch SGD with Adam on loss reached per unit of time
+        long start = System.nanoTime();
+        LogisticRegression fullBatch = new LogisticRegression();
+        fullBatch.train(x, y);
+        System.out.printf("Full batch: log loss %.6f in %.3f ms%n", fullBatch.logLoss(x, y), (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        LogisticRegression miniBatch = new LogisticRegression();
+        miniBatch.trainMiniBatch(x, y, 2, 300, true);
+        System.out.printf("Mini-batch Adam: log loss %.6f in %.3f ms%n", miniBatch.logLoss(x, y), (System.nanoTime() - start) / 1e6);
+
+        // Same full-batch training, stopped once an iteration improves the loss by less than 0.1%
+        start = System.nanoTime();
+        LogisticRegression early = new LogisticRegression();
+        early.setLossTolerance(1e-3);
+        early.train(x, y);
+        System.out.printf("Early stopping: log loss %.6f after %d iterations (%s) in %.3f ms%n", early.logLoss(x, y),
+                early.getEpochsRun(), early.getStopReason(), (System.nanoTime() - start) / 1e6);
+
+        // Round-trip the trained parameters through the binary model format
+        Path saved = Path.of(System.getProperty("java.io.tmpdir"), "logisticregression.model");
+        model.save(saved.toString());
+        System.out.println("Reloaded model gives: " + load(saved.toString()).predictProbability(4.5));
     }
 }
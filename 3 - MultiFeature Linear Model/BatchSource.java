@@ -0,0 +1,15 @@
+import java.io.IOException;
+
+/**
+ * Supplies training rows in batches for mini-batch training.
+ * A pass starts with reset() and ends when nextBatch returns 0.
+ */
+public interface BatchSource {
+    int numFeatures();
+
+    // Starts a new pass over the data, reshuffling if the source supports it
+    void reset() throws IOException;
+
+    // Fills up to maxRows rows (row-major) into features/labels and returns how many were written
+    int nextBatch(double[] features, double[] labels, int maxRows) throws IOException;
+}
@@ -0,0 +1,119 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Streams rows straight from a CSV file for datasets that do not fit on the heap.
+ * The file is mapped one window at a time and rows pass through a fixed-size shuffle buffer,
+ * so memory use is bounded by the buffer rather than by the file. Rows are returned raw; for
+ * scaling, pass featureStats() to MiniBatchTrainer.setScaling.
+ */
+public class CsvBatchSource implements BatchSource, Closeable {
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long dataStart;
+    private final int numFeatures;
+    private final Random random;
+
+    private final double[] bufferFeatures;  // shuffle buffer, row-major
+    private final double[] bufferLabels;
+    private int buffered;
+
+    private final double[] row;             // row most recently parsed by readRow()
+    private double rowLabel;
+    private CsvLoader.ChunkParser parser;
+    private long windowEnd;
+
+    // Set by featureStats()
+    double labelMean, labelStd;
+
+    CsvBatchSource(String path, int shuffleRows, long seed) throws IOException {
+        channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        fileSize = channel.size();
+        dataStart = CsvLoader.nextLineStart(channel, 0, fileSize);
+        numFeatures = CsvLoader.readHeader(channel, dataStart).length - 1;
+        random = new Random(seed);
+        bufferFeatures = new double[shuffleRows * numFeatures];
+        bufferLabels = new double[shuffleRows];
+        row = new double[numFeatures];
+        windowEnd = dataStart;
+    }
+
+    // Statistics of every feature from one streaming pass over the file, leaving the source reset.
+    // The label's mean and std are gathered in the same pass
+    FeatureStats featureStats() throws IOException {
+        FeatureStats stats = new FeatureStats(numFeatures);
+        FeatureStats labels = new FeatureStats(1);
+        double[] label = new double[1];
+        reset();
+        while (readRow()) {
+            stats.add(row, 0);
+            label[0] = rowLabel;
+            labels.add(label, 0);
+        }
+        reset();
+        labelMean = labels.means()[0];
+        labelStd = labels.stds()[0];
+        return stats;
+    }
+
+    @Override
+    public int numFeatures() {
+        return numFeatures;
+    }
+
+    @Override
+    public void reset() {
+        parser = null;
+        windowEnd = dataStart;
+        buffered = 0;
+    }
+
+    @Override
+    public int nextBatch(double[] features, double[] labels, int maxRows) throws IOException {
+        int rows = 0;
+        while (rows < maxRows) {
+            while (buffered < bufferLabels.length && readRow()) {
+                System.arraycopy(row, 0, bufferFeatures, buffered * numFeatures, numFeatures);
+                bufferLabels[buffered++] = rowLabel;
+            }
+            if (buffered == 0)
+                break;
+
+            // Emit a random buffered row and fill its slot with the last one
+            int k = random.nextInt(buffered);
+            System.arraycopy(bufferFeatures, k * numFeatures, features, rows * numFeatures, numFeatures);
+            labels[rows++] = bufferLabels[k];
+            buffered--;
+            System.arraycopy(bufferFeatures, buffered * numFeatures, bufferFeatures, k * numFeatures, numFeatures);
+            bufferLabels[k] = bufferLabels[buffered];
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean readRow() throws IOException {
+        while (parser == null || !parser.nextRow()) {
+            if (windowEnd >= fileSize)
+                return false;
+            long start = windowEnd;
+            long end = Math.min(fileSize, start + CsvLoader.MAX_CHUNK);
+            if (end < fileSize)
+                end = CsvLoader.nextLineStart(channel, end, fileSize);
+            long line = parser == null ? 2 : parser.line(); // the header is line 1
+            parser = new CsvLoader.ChunkParser(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), line);
+            windowEnd = end;
+        }
+        for (int j = 0; j < numFeatures; j++)
+            row[j] = parser.nextValue(true);
+        rowLabel = parser.nextValue(false);
+        return true;
+    }
+}
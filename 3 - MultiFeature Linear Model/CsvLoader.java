@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads a numeric CSV (header line, then feature columns followed by the label) into a Dataset.
+ * The file is memory-mapped and numbers are parsed straight from the bytes, so no line or token
+ * Strings are created. Large files are cut into newline-aligned chunks that are parsed in parallel,
+ * each straight into its own row range of one Dataset allocated at the final size.
+ * With collectStats set, every chunk also feeds its rows into a FeatureStats while they are hot,
+ * and the per-chunk statistics are merged, so normalization needs no separate pass.
+ */
+public class CsvLoader {
+    static final long MAX_CHUNK = 1L << 30;                // one mapping must stay below 2GB
+    private static final long MIN_CHUNK = 8L << 20;        // smaller files are parsed on the calling thread
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int threads;
+    boolean collectStats;         // also gather FeatureStats while parsing
+
+    // Statistics from the last call to load()
+    long rows;
+    long bytes;
+    long nanos;
+    FeatureStats featureStats;    // null unless collectStats was set
+
+    CsvLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    CsvLoader(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    Dataset load(String path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long headerEnd = nextLineStart(channel, 0, fileSize);
+            featureStats = null;
+            if (headerEnd == 0)
+                return finish(new Dataset(0), 0, start);
+
+            String[] columns = readHeader(channel, headerEnd);
+            int numFeatures = columns.length - 1;
+            if (collectStats)
+                featureStats = new FeatureStats(numFeatures);
+
+            Dataset data = parseChunks(channel, split(channel, headerEnd, fileSize), numFeatures);
+            data.featureNames = new String[numFeatures];
+            for (int j = 0; j < numFeatures; j++)
+                data.featureNames[j] = columns[j].trim();
+            return finish(data, fileSize, start);
+        }
+    }
+
+    String summary() {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format("Loaded %,d rows (%.1f MB) in %.1f ms - %,.0f rows/s, %.1f MB/s",
+                rows, bytes / 1e6, nanos / 1e6, rows / seconds, bytes / 1e6 / seconds);
+    }
+
+    private Dataset finish(Dataset data, long fileSize, long start) {
+        rows = data.size;
+        bytes = fileSize;
+        nanos = System.nanoTime() - start;
+        return data;
+    }
+
+    // Two passes over the chunks: the first counts rows and lines, so the Dataset is allocated once
+    // at its final size and every chunk knows its first row and first file line; the second
+    // parses each chunk straight into its own range of that Dataset
+    private Dataset parseChunks(FileChannel channel, List<long[]> chunks, int numFeatures) throws IOException {
+        int n = chunks.size();
+        MappedByteBuffer[] buffers = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++)
+            buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunks.get(i)[0], chunks.get(i)[1] - chunks.get(i)[0]);
+
+        ExecutorService pool = n > 1 ? Executors.newFixedThreadPool(Math.min(threads, n)) : null;
+        try {
+            long[][] counts = new long[n][];
+            forEachChunk(pool, n, i -> counts[i] = countRows(buffers[i]));
+
+            int[] firstRow = new int[n];
+            long[] firstLine = new long[n];
+            long total = 0, line = 2; // the header is line 1
+            for (int i = 0; i < n; i++) {
+                firstRow[i] = (int) total;
+                firstLine[i] = line;
+                total += counts[i][0];
+                line += counts[i][1];
+            }
+            if (total * Math.max(numFeatures, 1) > Integer.MAX_VALUE - 8)
+                throw new IOException("Too many values for one Dataset: " + total + " rows of " + numFeatures + " features");
+
+            Dataset data = new Dataset(numFeatures, (int) total);
+            FeatureStats[] partStats = new FeatureStats[n];
+            forEachChunk(pool, n, i -> {
+                partStats[i] = featureStats != null ? new FeatureStats(numFeatures) : null;
+                parseChunk(buffers[i], data, firstRow[i], (int) counts[i][0], firstLine[i], partStats[i]);
+            });
+            data.size = (int) total;
+            // Merged in file order, so the result matches a single sequential pass
+            if (featureStats != null) {
+                for (FeatureStats stats : partStats)
+                    featureStats.merge(stats);
+            }
+            return data;
+        } finally {
+            if (pool != null)
+                pool.shutdownNow();
+        }
+    }
+
+    // Runs task(0 .. n-1) on the pool, or on the calling thread when there is none
+    private static void forEachChunk(ExecutorService pool, int n, IntConsumer task) throws IOException {
+        if (pool == null) {
+            for (int i = 0; i < n; i++)
+                task.accept(i);
+            return;
+        }
+        List<Future<?>> pending = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            pending.add(pool.submit(() -> task.accept(index)));
+        }
+        try {
+            for (Future<?> f : pending)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // Cuts [from, to) into roughly equal ranges that each end on a line boundary
+    private List<long[]> split(FileChannel channel, long from, long to) throws IOException {
+        long length = to - from;
+        long chunkSize = Math.max(MIN_CHUNK, length / threads);
+        chunkSize = Math.min(chunkSize, MAX_CHUNK);
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = from;
+        while (start < to) {
+            long end = start + chunkSize >= to ? to : nextLineStart(channel, start + chunkSize, to);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        if (chunks.isEmpty())
+            chunks.add(new long[]{from, from});
+        return chunks;
+    }
+
+    static String[] readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+        channel.read(header, 0);
+        return new String(header.array()).trim().split(",");
+    }
+
+    // Position just past the first '\n' at or after pos, or limit if there is none
+    static long nextLineStart(FileChannel channel, long pos, long limit) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        while (pos < limit) {
+            window.clear();
+            int n = channel.read(window, pos);
+            if (n <= 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                if (window.get(i) == '\n')
+                    return pos + i + 1;
+            }
+            pos += n;
+        }
+        return limit;
+    }
+
+    // Rows and '\n' count of a chunk. A row starts at any byte other than '\r' or '\n' that opens a
+    // line, the same rule ChunkParser.nextRow() uses to skip blank lines
+    static long[] countRows(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        long rows = 0, newlines = 0;
+        boolean lineStart = true;
+        for (int pos = 0; pos < limit; pos++) {
+            byte b = buffer.get(pos);
+            if (b == '\n' || b == '\r') {
+                if (b == '\n')
+                    newlines++;
+                lineStart = true;
+            } else if (lineStart) {
+                rows++;
+                lineStart = false;
+            }
+        }
+        return new long[]{rows, newlines};
+    }
+
+    // Parses the chunk into rows [firstRow, firstRow + rows) of data
+    private static void parseChunk(ByteBuffer buffer, Dataset data, int firstRow, int rows, long firstLine, FeatureStats stats) {
+        int numFeatures = data.numFeatures;
+        double[] features = data.features;
+        ChunkParser parser = new ChunkParser(buffer, firstLine);
+        int row = firstRow, end = firstRow + rows;
+        while (parser.nextRow()) {
+            if (row == end)
+                throw new IllegalStateException("More rows than counted in the chunk starting at line " + firstLine);
+            int base = row * numFeatures;
+            for (int j = 0; j < numFeatures; j++)
+                features[base + j] = parser.nextValue(true);
+            data.labels[row++] = parser.nextValue(false);
+            if (stats != null)
+                stats.add(features, base);
+        }
+        if (row != end)
+            throw new IllegalStateException("Fewer rows than counted in the chunk starting at line " + firstLine);
+    }
+
+    /**
+     * Cursor over the bytes of one chunk. Values are read left to right; each call consumes the
+     * value and the delimiter after it.
+     */
+    static class ChunkParser {
+        private final ByteBuffer buf;
+        private final int limit;
+        private int pos;
+        private long line;  // file line number at pos, for error messages
+
+        ChunkParser(ByteBuffer buf, long firstLine) {
+            this.buf = buf;
+            this.limit = buf.limit();
+            this.line = firstLine;
+        }
+
+        // Skips blank lines; returns false once the chunk is exhausted
+        boolean nextRow() {
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b != '\n' && b != '\r')
+                    break;
+                if (b == '\n')
+                    line++;
+                pos++;
+            }
+            return pos < limit;
+        }
+
+        // Line number of the next unread byte; after the last row, the first line past the chunk
+        long line() {
+            return line;
+        }
+
+        double nextValue(boolean expectComma) {
+            while (pos < limit && buf.get(pos) == ' ')
+                pos++;
+            int start = pos;
+
+            boolean negative = false;
+            if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+'))
+                negative = buf.get(pos++) == '-';
+
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            boolean sawDigit = false;
+            byte b;
+            while (pos < limit && (b = buf.get(pos)) >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0)
+                        digits++;
+                } else {
+                    digits++;
+                    exponent++;
+                }
+                sawDigit = true;
+                pos++;
+            }
+            if (pos < limit && buf.get(pos) == '.') {
+                pos++;
+                while (pos < limit && (b = buf.get(pos)) >= '0' && b <= '9') {
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0)
+                            digits++;
+                        exponent--;
+                    } else {
+                        digits++;
+                    }
+                    sawDigit = true;
+                    pos++;
+                }
+            }
+            if (sawDigit && pos < limit && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+                pos++;
+                boolean negativeExp = false;
+                if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+'))
+                    negativeExp = buf.get(pos++) == '-';
+                int e = 0;
+                while (pos < limit && (b = buf.get(pos)) >= '0' && b <= '9') {
+                    e = Math.min(e * 10 + (b - '0'), 100000);
+                    pos++;
+                }
+                exponent += negativeExp ? -e : e;
+            }
+
+            double value;
+            // Exact for up to 15 significant digits and |exponent| <= 22, the common case in
+            // exported data; anything else goes through the JDK parser for correct rounding
+            if (sawDigit && digits <= 15 && exponent >= -22 && exponent <= 22) {
+                value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+                if (negative)
+                    value = -value;
+            } else {
+                value = slowParse(start);
+            }
+
+            while (pos < limit && buf.get(pos) == ' ')
+                pos++;
+            if (expectComma) {
+                if (pos >= limit || buf.get(pos) != ',')
+                    throw new NumberFormatException("Missing column on line " + line);
+                pos++;
+            } else {
+                if (pos < limit && buf.get(pos) == '\r')
+                    pos++;
+                if (pos < limit) {
+                    if (buf.get(pos++) != '\n')
+                        throw new NumberFormatException("Unexpected extra column on line " + line);
+                    line++;
+                }
+            }
+            return value;
+        }
+
+        private double slowParse(int start) {
+            int end = start;
+            while (end < limit) {
+                byte b = buf.get(end);
+                if (b == ',' || b == '\n' || b == '\r')
+                    break;
+                end++;
+            }
+            byte[] token = new byte[end - start];
+            buf.get(start, token);
+            pos = end;
+            try {
+                return Double.parseDouble(new String(token).trim());
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("Invalid number '" + new String(token).trim() + "' on line " + line);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Arrays;
+
+/**
+ * Dense training set stored row-major in one flat array.
+ * Feature j of row i lives at features[i * numFeatures + j] and its label at labels[i],
+ * so an epoch streams over contiguous memory instead of one object per row.
+ */
+public class Dataset {
+    final int numFeatures;
+    String[] featureNames; // from the CSV header when known, otherwise null
+    double[] features;
+    double[] labels;
+    int size;
+
+    Dataset(int numFeatures) {
+        this(numFeatures, 16);
+    }
+
+    Dataset(int numFeatures, int capacity) {
+        this.numFeatures = numFeatures;
+        this.features = new double[Math.max(capacity, 1) * numFeatures];
+        this.labels = new double[Math.max(capacity, 1)];
+    }
+
+    // Copies the row into the backing array, so callers can reuse their buffer
+    void add(double[] row, double label) {
+        if (size == labels.length)
+            grow(size + 1);
+        System.arraycopy(row, 0, features, size * numFeatures, numFeatures);
+        labels[size++] = label;
+    }
+
+    // Appends every row of another dataset with the same column layout
+    void addAll(Dataset other) {
+        if (size + other.size > labels.length)
+            grow(size + other.size);
+        System.arraycopy(other.features, 0, features, size * numFeatures, other.size * numFeatures);
+        System.arraycopy(other.labels, 0, labels, size, other.size);
+        size += other.size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double feature(int row, int j) {
+        return features[row * numFeatures + j];
+    }
+
+    double label(int row) {
+        return labels[row];
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, labels.length + (labels.length >> 1));
+        features = Arrays.copyOf(features, capacity * numFeatures);
+        labels = Arrays.copyOf(labels, capacity);
+    }
+}
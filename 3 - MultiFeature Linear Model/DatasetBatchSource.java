@@ -0,0 +1,52 @@
+import java.util.Random;
+
+/**
+ * Serves rows [from, to) of an in-memory Dataset in a fresh random order on every pass.
+ */
+public class DatasetBatchSource implements BatchSource {
+    private final Dataset data;
+    private final int[] order;
+    private final Random random;
+    private int next;
+
+    DatasetBatchSource(Dataset data, long seed) {
+        this(data, 0, data.size, seed);
+    }
+
+    DatasetBatchSource(Dataset data, int from, int to, long seed) {
+        this.data = data;
+        this.order = new int[to - from];
+        for (int i = 0; i < order.length; i++)
+            order[i] = from + i;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public int numFeatures() {
+        return data.numFeatures;
+    }
+
+    @Override
+    public void reset() {
+        // Fisher-Yates shuffle of the row indices
+        for (int i = order.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[k];
+            order[k] = tmp;
+        }
+        next = 0;
+    }
+
+    @Override
+    public int nextBatch(double[] features, double[] labels, int maxRows) {
+        int numFeatures = data.numFeatures;
+        int rows = Math.min(maxRows, order.length - next);
+        for (int r = 0; r < rows; r++) {
+            int i = order[next++];
+            System.arraycopy(data.features, i * numFeatures, features, r * numFeatures, numFeatures);
+            labels[r] = data.labels[i];
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file for a Dataset, written by RowLog compaction so training data loads with no text
+ * parsing.
+ *
+ * Layout (little-endian):
+ *   magic "JAVD" | format version u16 | reserved u16 | feature count i32 | row count i32
+ *   row log generation i64 | row log rows i64 (the log rows already folded into this file)
+ *   feature names (u16 length + UTF-8 bytes each, length 0 when unknown)
+ *   features, row-major as in Dataset.features | labels | CRC32 of everything before it (i32)
+ *
+ * The body is Dataset's own two arrays, so each is copied in bulk through a DoubleBuffer view:
+ * from a write buffer on save, from memory mappings on load. Like ModelIO, files are written to a
+ * temporary sibling and moved into place.
+ */
+public class DatasetFile {
+    private static final int MAGIC = 0x4456414A; // "JAVD" read little-endian
+    private static final short FORMAT_VERSION = 2;
+    private static final int CHUNK = 1 << 24; // doubles per mapping on load, 128 MB
+
+    // Set by load(): the row log position the file's rows extend to
+    long logGeneration;
+    long logRows;
+
+    static void save(Dataset data, long logGeneration, long logRows, String path) throws IOException {
+        int numFeatures = data.numFeatures;
+        Path target = Path.of(path);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0);
+            buffer.putInt(numFeatures).putInt(data.size).putLong(logGeneration).putLong(logRows);
+            for (int j = 0; j < numFeatures; j++) {
+                byte[] name = data.featureNames == null ? new byte[0] : data.featureNames[j].getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 2 + name.length)
+                    write(channel, buffer, crc);
+                buffer.putShort((short) name.length).put(name);
+            }
+            write(channel, buffer, crc);
+            writeDoubles(channel, buffer, crc, data.features, data.size * numFeatures);
+            writeDoubles(channel, buffer, crc, data.labels, data.size);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Checksums and writes out the buffered bytes, leaving the buffer empty
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    // Writes values[0 .. count) through the buffer's DoubleBuffer view, a buffer's worth at a time
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, CRC32 crc, double[] values, int count) throws IOException {
+        for (int i = 0; i < count; ) {
+            int n = Math.min(count - i, buffer.capacity() / 8);
+            buffer.asDoubleBuffer().put(values, i, n);
+            buffer.position(n * 8);
+            write(channel, buffer, crc);
+            i += n;
+        }
+    }
+
+    // Reads count doubles at position into values through read-only mappings
+    private static long readDoubles(FileChannel channel, long position, CRC32 crc, double[] values, int count) throws IOException {
+        for (int i = 0; i < count; ) {
+            int n = Math.min(count - i, CHUNK);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) n * 8);
+            crc.update(chunk.duplicate());
+            chunk.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, i, n);
+            position += (long) n * 8;
+            i += n;
+        }
+        return position;
+    }
+
+    Dataset load(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            if (size < header.capacity() + 4 || channel.read(header, 0) != header.capacity())
+                throw new IOException("Not a dataset file: " + path);
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a dataset file: " + path);
+            short formatVersion = header.getShort();
+            if (formatVersion != FORMAT_VERSION)
+                throw new IOException("Unsupported dataset format version " + formatVersion + " in " + path);
+            header.getShort(); // reserved
+            int numFeatures = header.getInt();
+            int rows = header.getInt();
+            long generation = header.getLong();
+            long fromLog = header.getLong();
+
+            CRC32 crc = new CRC32();
+            crc.update(header.flip());
+            long position = header.capacity();
+            String[] names = new String[numFeatures];
+            boolean named = false;
+            ByteBuffer length = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int j = 0; j < numFeatures; j++) {
+                channel.read(length.clear(), position);
+                ByteBuffer name = ByteBuffer.allocate(length.flip().getShort(0) & 0xFFFF);
+                channel.read(name, position + 2);
+                crc.update(length);
+                crc.update(name.array(), 0, name.capacity());
+                names[j] = new String(name.array(), StandardCharsets.UTF_8);
+                named |= name.capacity() > 0;
+                position += 2 + name.capacity();
+            }
+            if (size != position + (long) (numFeatures + 1) * rows * 8 + 4)
+                throw new IOException("Truncated dataset file: " + path);
+
+            Dataset data = new Dataset(numFeatures, rows);
+            position = readDoubles(channel, position, crc, data.features, rows * numFeatures);
+            position = readDoubles(channel, position, crc, data.labels, rows);
+            ByteBuffer stored = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(stored, position);
+            if ((int) crc.getValue() != stored.getInt(0))
+                throw new IOException("Checksum mismatch in dataset file: " + path);
+
+            data.size = rows;
+            data.featureNames = named ? names : null;
+            logGeneration = generation;
+            logRows = fromLog;
+            return data;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.stream.IntStream;
+
+/**
+ * Mean and population standard deviation of every feature column, gathered in one pass.
+ * Rows are added with Welford's update, and partial results are combined with Chan's pairwise
+ * merge. Partitions can therefore be computed in parallel, or per CSV chunk while parsing, without
+ * the cancellation errors of sum / sum-of-squares. A column with std 0 is constant; normalize()
+ * and the trainers leave it unscaled, as ModelSnapshot does.
+ */
+public class FeatureStats {
+    private static final int MIN_ROWS_PER_PARTITION = 4096;
+
+    final int numFeatures;
+    long count;
+    final double[] means;
+    final double[] m2;      // sum of squared deviations from the mean, per column
+
+    FeatureStats(int numFeatures) {
+        this.numFeatures = numFeatures;
+        this.means = new double[numFeatures];
+        this.m2 = new double[numFeatures];
+    }
+
+    static FeatureStats of(Dataset data) {
+        return of(data, 0, data.size, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Statistics of rows [from, to). Partitions are merged in order, so the result only
+    // depends on the thread count
+    static FeatureStats of(Dataset data, int from, int to, int threads) {
+        int rows = to - from;
+        int partitions = Math.max(1, Math.min(threads, rows / MIN_ROWS_PER_PARTITION));
+        FeatureStats[] parts = new FeatureStats[partitions];
+        IntStream.range(0, partitions).parallel().forEach(p -> {
+            FeatureStats part = new FeatureStats(data.numFeatures);
+            int start = from + (int) ((long) rows * p / partitions);
+            int end = from + (int) ((long) rows * (p + 1) / partitions);
+            for (int i = start; i < end; i++)
+                part.add(data.features, i * data.numFeatures);
+            parts[p] = part;
+        });
+        for (int p = 1; p < partitions; p++)
+            parts[0].merge(parts[p]);
+        return parts[0];
+    }
+
+    // Adds one row stored at values[offset .. offset + numFeatures)
+    void add(double[] values, int offset) {
+        count++;
+        double n = count;
+        for (int j = 0; j < numFeatures; j++) {
+            double x = values[offset + j];
+            double delta = x - means[j];
+            means[j] += delta / n;
+            m2[j] += delta * (x - means[j]);
+        }
+    }
+
+    // Folds in the statistics of a disjoint set of rows (Chan et al.)
+    void merge(FeatureStats other) {
+        if (other.count == 0)
+            return;
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, numFeatures);
+            System.arraycopy(other.m2, 0, m2, 0, numFeatures);
+            return;
+        }
+        double n = count + other.count;
+        double weight = (double) count * other.count / n;
+        for (int j = 0; j < numFeatures; j++) {
+            double delta = other.means[j] - means[j];
+            means[j] += delta * other.count / n;
+            m2[j] += other.m2[j] + delta * delta * weight;
+        }
+        count += other.count;
+    }
+
+    double[] means() {
+        return means.clone();
+    }
+
+    double[] stds() {
+        double[] out = new double[numFeatures];
+        for (int j = 0; j < numFeatures; j++)
+            out[j] = count == 0 ? 0 : Math.sqrt(m2[j] / count);
+        return out;
+    }
+
+    // Per-column offset and multiplier of the standardization, x' = (x - shift) * scale;
+    // constant columns get shift 0 and scale 1
+    double[] shifts() {
+        double[] out = new double[numFeatures];
+        for (int j = 0; j < numFeatures; j++)
+            out[j] = m2[j] > 0 ? means[j] : 0;
+        return out;
+    }
+
+    double[] scales() {
+        double[] out = new double[numFeatures];
+        for (int j = 0; j < numFeatures; j++)
+            out[j] = m2[j] > 0 ? 1 / Math.sqrt(m2[j] / count) : 1;
+        return out;
+    }
+
+    // Writes the weights that apply a standardized model directly to raw rows into out and
+    // returns the matching bias: w . (x - shift) * scale + b = (w * scale) . x + (b - (w * scale) . shift)
+    static double fold(double[] weights, double bias, double[] shift, double[] scale, double[] out) {
+        for (int j = 0; j < weights.length; j++) {
+            out[j] = weights[j] * scale[j];
+            bias -= out[j] * shift[j];
+        }
+        return bias;
+    }
+
+    // Standardizes one raw row; constant columns pass through unchanged
+    double[] normalize(double[] input) {
+        double[] out = new double[numFeatures];
+        for (int j = 0; j < numFeatures; j++) {
+            double std = count == 0 ? 0 : Math.sqrt(m2[j] / count);
+            out[j] = std != 0 ? (input[j] - means[j]) / std : input[j];
+        }
+        return out;
+    }
+}
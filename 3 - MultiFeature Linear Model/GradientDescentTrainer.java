@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Full-batch gradient descent for the multi-feature linear model.
+ * Every epoch the rows are cut into fixed contiguous partitions, each partition accumulates its
+ * own gradient vector on a ForkJoinPool worker, and the partial vectors are summed in partition
+ * order. For a fixed thread count the summation order never changes, so runs are repeatable.
+ * The same pass also sums the squared errors, so the loss of every epoch comes for free.
+ * A held-out row range is skipped by the scan, which gives a validation split or a
+ * cross-validation fold without copying the data.
+ * With setScaling the weights live in standardized feature space, but the rows are read raw:
+ * each epoch folds the scaling into the weights used for the scan and converts the gradient
+ * back. The result is the same as training on a normalized copy, without rewriting the data.
+ */
+public class GradientDescentTrainer {
+    private static final int MIN_ROWS_PER_PARTITION = 4096; // below this, threading costs more than it saves
+
+    private final Dataset data;
+    private final int trainRows;
+    private final ForkJoinPool pool;          // null when training single-threaded
+    private final PartitionTask[] tasks;
+    private final double[] grads;
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private final EpochStats.Probe probe = new EpochStats.Probe();
+    private double[] shift, scale;     // standardization applied on read, null when rows are used as-is
+    private final double[] scanWeights; // weights in raw feature space for the current epoch
+    private double scanBias;
+
+    double[] weights;
+    double bias;
+    double learningRate;
+    int epochs;           // epochs run so far
+    double loss;          // MSE of the last epoch, measured before its update
+    double gradientNorm;  // L2 norm of the last epoch's mean gradient
+    StoppingCriteria.Reason stopReason; // why the last train() call ended
+
+    GradientDescentTrainer(Dataset data, double learningRate) {
+        this(data, learningRate, Runtime.getRuntime().availableProcessors());
+    }
+
+    GradientDescentTrainer(Dataset data, double learningRate, int threads) {
+        this(data, learningRate, threads, data.size);
+    }
+
+    // Trains on rows [0, trainRows) only
+    GradientDescentTrainer(Dataset data, double learningRate, int threads, int trainRows) {
+        this(data, learningRate, threads, trainRows, data.size);
+    }
+
+    // Trains on every row outside [holdoutFrom, holdoutTo)
+    GradientDescentTrainer(Dataset data, double learningRate, int threads, int holdoutFrom, int holdoutTo) {
+        int trainRows = data.size - (holdoutTo - holdoutFrom);
+        if (holdoutFrom < 0 || holdoutTo > data.size || holdoutFrom > holdoutTo || trainRows <= 0)
+            throw new IllegalArgumentException("Holdout [" + holdoutFrom + ", " + holdoutTo + ") leaves no rows of " + data.size);
+        this.data = data;
+        this.trainRows = trainRows;
+        this.learningRate = learningRate;
+        this.weights = new double[data.numFeatures];
+        this.grads = new double[data.numFeatures + 1];
+        this.scanWeights = new double[data.numFeatures];
+
+        int partitions = Math.max(1, Math.min(threads, trainRows / MIN_ROWS_PER_PARTITION));
+        this.pool = partitions > 1 ? new ForkJoinPool(partitions) : null;
+        this.tasks = new PartitionTask[partitions];
+        int skipped = holdoutTo - holdoutFrom;
+        for (int p = 0; p < partitions; p++) {
+            // Partitions split the training rows evenly; one that straddles the holdout scans
+            // the rows before it and the rows after it
+            int from = (int) ((long) trainRows * p / partitions);
+            int to = (int) ((long) trainRows * (p + 1) / partitions);
+            tasks[p] = new PartitionTask(from, Math.min(to, holdoutFrom),
+                    Math.max(from, holdoutFrom) + skipped, Math.max(to, holdoutFrom) + skipped);
+        }
+    }
+
+    void addListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    // Trains on (x - mean) / std using the given statistics, without modifying the data
+    void setScaling(FeatureStats stats) {
+        this.shift = stats.shifts();
+        this.scale = stats.scales();
+    }
+
+    // Weights and bias that apply to raw rows; equal to weights/bias when no scaling is set
+    double[] rawWeights() {
+        double[] out = weights.clone();
+        if (scale != null)
+            FeatureStats.fold(weights, bias, shift, scale, out);
+        return out;
+    }
+
+    double rawBias() {
+        return scale == null ? bias : FeatureStats.fold(weights, bias, shift, scale, new double[weights.length]);
+    }
+
+    // One pass over every row followed by a single weight update
+    void runEpoch() {
+        if (!listeners.isEmpty())
+            probe.start();
+        if (scale != null) {
+            scanBias = FeatureStats.fold(weights, bias, shift, scale, scanWeights);
+        } else {
+            System.arraycopy(weights, 0, scanWeights, 0, weights.length);
+            scanBias = bias;
+        }
+        if (pool == null) {
+            tasks[0].compute();
+        } else {
+            for (PartitionTask task : tasks) {
+                task.reinitialize();
+                pool.execute(task);
+            }
+            for (PartitionTask task : tasks)
+                task.join();
+        }
+
+        Arrays.fill(grads, 0.0);
+        double squaredError = 0;
+        for (PartitionTask task : tasks) {
+            for (int j = 0; j < grads.length; j++)
+                grads[j] += task.partial[j];
+            squaredError += task.squaredError;
+        }
+
+        int numFeatures = data.numFeatures;
+        if (scale != null) {
+            // d/dw_j of the loss for standardized x_j is sum(error * (x_j - shift_j)) * scale_j
+            for (int j = 0; j < numFeatures; j++)
+                grads[j] = (grads[j] - shift[j] * grads[numFeatures]) * scale[j];
+        }
+        double normSquared = 0;
+        for (int j = 0; j < grads.length; j++) {
+            grads[j] /= trainRows;
+            normSquared += grads[j] * grads[j];
+        }
+        for (int j = 0; j < numFeatures; j++)
+            weights[j] -= learningRate * grads[j];
+        bias -= learningRate * grads[numFeatures];
+
+        loss = squaredError / trainRows;
+        gradientNorm = Math.sqrt(normSquared);
+        epochs++;
+        if (!listeners.isEmpty()) {
+            EpochStats stats = probe.finish("gradient-descent", epochs, trainRows, loss, gradientNorm);
+            for (TrainingListener listener : listeners)
+                listener.onEpoch(stats);
+        }
+    }
+
+    // Runs epochs until a criterion fires; returns the reason, also kept in stopReason.
+    // Stopping on validation patience rolls the weights back to the best validated epoch.
+    StoppingCriteria.Reason train(StoppingCriteria criteria) {
+        criteria.start();
+        criteria.setScaling(shift, scale);
+        int first = epochs;
+        StoppingCriteria.Reason reason;
+        do {
+            runEpoch();
+        } while ((reason = criteria.check(epochs - first, loss, gradientNorm, weights, bias)) == null);
+        if (reason == StoppingCriteria.Reason.VALIDATION_PATIENCE && criteria.bestWeights != null) {
+            System.arraycopy(criteria.bestWeights, 0, weights, 0, weights.length);
+            bias = criteria.bestBias;
+        }
+        stopReason = reason;
+        return reason;
+    }
+
+    void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    private class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int from1, to1, from2, to2; // rows [from1, to1) and [from2, to2); either may be empty
+        final double[] partial = new double[data.numFeatures + 1]; // bias gradient in the last slot
+        double squaredError;
+
+        PartitionTask(int from1, int to1, int from2, int to2) {
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+        }
+
+        @Override
+        protected void compute() {
+            Arrays.fill(partial, 0.0);
+            squaredError = 0;
+            accumulate(from1, to1);
+            accumulate(from2, to2);
+        }
+
+        private void accumulate(int from, int to) {
+            int numFeatures = data.numFeatures;
+            double[] features = data.features;
+            double[] labels = data.labels;
+            double[] w = scanWeights;
+            double b = scanBias;
+
+            double biasGrad = 0, sse = 0;
+            for (int i = from, base = from * numFeatures; i < to; i++, base += numFeatures) {
+                double pred = b + LinAlg.dot(w, 0, features, base, numFeatures);
+                double error = pred - labels[i];
+                LinAlg.axpy(error, features, base, partial, 0, numFeatures);
+                biasGrad += error;
+                sse += error * error;
+            }
+            partial[numFeatures] += biasGrad;
+            squaredError += sse;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Turns epochs into "javai.TrainingEpoch" Flight Recorder events. These show up next to GC and
+ * allocation data in JMC and `jfr print --events javai.TrainingEpoch`. When no recording is
+ * running, the event is disabled and onEpoch costs one check, but the first event still loads and
+ * registers the event class. Callers therefore add the listener only when recording() is true.
+ */
+public class JfrTrainingListener implements TrainingListener {
+
+    @Name("javai.TrainingEpoch")
+    @Label("Training Epoch")
+    @Category({"JavAI", "Training"})
+    @Description("One epoch of model training")
+    static class EpochEvent extends Event {
+        @Label("Trainer")
+        String trainer;
+
+        @Label("Epoch")
+        int epoch;
+
+        @Label("Epoch Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long epochTime;
+
+        @Label("Samples")
+        long samples;
+
+        @Label("Samples per Second")
+        double samplesPerSecond;
+
+        @Label("Loss")
+        double loss;
+
+        @Label("Gradient Norm")
+        double gradientNorm;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("GC Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long gcTime;
+    }
+
+    // True when Flight Recorder has a recording, e.g. from -XX:StartFlightRecording. Asks without
+    // initializing Flight Recorder when nothing has started it
+    static boolean recording() {
+        return FlightRecorder.isInitialized() && !FlightRecorder.getFlightRecorder().getRecordings().isEmpty();
+    }
+
+    @Override
+    public void onEpoch(EpochStats stats) {
+        EpochEvent event = new EpochEvent();
+        if (!event.isEnabled())
+            return;
+        event.trainer = stats.trainer;
+        event.epoch = stats.epoch;
+        event.epochTime = stats.nanos;
+        event.samples = stats.samples;
+        event.samplesPerSecond = stats.samplesPerSecond();
+        event.loss = stats.loss;
+        event.gradientNorm = stats.gradientNorm;
+        event.allocated = stats.allocatedBytes;
+        event.gcTime = stats.gcMillis;
+        event.commit();
+    }
+}
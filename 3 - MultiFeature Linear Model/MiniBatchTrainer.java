@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mini-batch gradient descent for the multi-feature linear model.
+ * Rows are pulled from a BatchSource, so the data never has to be fully in memory, and the
+ * weights are updated after every batch with the configured Optimizer (batchSize = 1 is online SGD).
+ */
+public class MiniBatchTrainer {
+    private final BatchSource source;
+    private final Optimizer optimizer;
+    private final int batchSize;
+    private final double[] batchFeatures;
+    private final double[] batchLabels;
+    private final double[] grads;
+    private final double[] epochGrads; // gradient sums over the whole epoch, for the reported norm
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private final EpochStats.Probe probe = new EpochStats.Probe();
+    private final String name;
+    private double[] shift, scale;     // standardization applied on read, null when rows are used as-is
+    private final double[] scanWeights; // weights in raw feature space for the current batch
+
+    double[] weights;
+    double bias;
+    long samplesSeen;
+    int epochs;           // epochs run so far
+    double loss;          // mean squared error of the last epoch, each batch measured before its update
+    double gradientNorm;  // L2 norm of the last epoch's mean gradient
+    StoppingCriteria.Reason stopReason; // why the last train() call ended
+
+    MiniBatchTrainer(BatchSource source, Optimizer optimizer, int batchSize) {
+        int numFeatures = source.numFeatures();
+        this.source = source;
+        this.optimizer = optimizer;
+        this.batchSize = batchSize;
+        this.batchFeatures = new double[batchSize * numFeatures];
+        this.batchLabels = new double[batchSize];
+        this.grads = new double[numFeatures + 1];
+        this.epochGrads = new double[numFeatures + 1];
+        this.scanWeights = new double[numFeatures];
+        this.weights = new double[numFeatures];
+        this.name = "mini-batch-" + optimizer.type.name().toLowerCase(java.util.Locale.ROOT);
+    }
+
+    void addListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    // Trains on (x - mean) / std using the given statistics; see GradientDescentTrainer.setScaling
+    void setScaling(FeatureStats stats) {
+        this.shift = stats.shifts();
+        this.scale = stats.scales();
+    }
+
+    // Weights and bias that apply to raw rows; equal to weights/bias when no scaling is set
+    double[] rawWeights() {
+        double[] out = weights.clone();
+        if (scale != null)
+            FeatureStats.fold(weights, bias, shift, scale, out);
+        return out;
+    }
+
+    double rawBias() {
+        return scale == null ? bias : FeatureStats.fold(weights, bias, shift, scale, new double[weights.length]);
+    }
+
+    // One pass over the source; returns the number of rows trained on
+    long runEpoch() throws IOException {
+        if (!listeners.isEmpty())
+            probe.start();
+        int numFeatures = weights.length;
+        long rowsThisEpoch = 0;
+        double squaredError = 0;
+        Arrays.fill(epochGrads, 0.0);
+        source.reset();
+
+        int rows;
+        while ((rows = source.nextBatch(batchFeatures, batchLabels, batchSize)) > 0) {
+            Arrays.fill(grads, 0.0);
+            double[] w = weights;
+            double b = bias;
+            if (scale != null) {
+                b = FeatureStats.fold(weights, bias, shift, scale, scanWeights);
+                w = scanWeights;
+            }
+            for (int i = 0, base = 0; i < rows; i++, base += numFeatures) {
+                double pred = b + LinAlg.dot(w, 0, batchFeatures, base, numFeatures);
+                double error = pred - batchLabels[i];
+                LinAlg.axpy(error, batchFeatures, base, grads, 0, numFeatures);
+                grads[numFeatures] += error;
+                squaredError += error * error;
+            }
+            if (scale != null) {
+                for (int j = 0; j < numFeatures; j++)
+                    grads[j] = (grads[j] - shift[j] * grads[numFeatures]) * scale[j];
+            }
+            for (int j = 0; j <= numFeatures; j++)
+                epochGrads[j] += grads[j];
+
+            optimizer.beginStep();
+            for (int j = 0; j < numFeatures; j++)
+                weights[j] -= optimizer.delta(j, grads[j] / rows);
+            bias -= optimizer.delta(numFeatures, grads[numFeatures] / rows);
+            rowsThisEpoch += rows;
+        }
+        samplesSeen += rowsThisEpoch;
+
+        double normSquared = 0;
+        for (double g : epochGrads)
+            normSquared += (g / rowsThisEpoch) * (g / rowsThisEpoch);
+        loss = rowsThisEpoch == 0 ? 0 : squaredError / rowsThisEpoch;
+        gradientNorm = rowsThisEpoch == 0 ? 0 : Math.sqrt(normSquared);
+        epochs++;
+        if (!listeners.isEmpty()) {
+            EpochStats stats = probe.finish(name, epochs, rowsThisEpoch, loss, gradientNorm);
+            for (TrainingListener listener : listeners)
+                listener.onEpoch(stats);
+        }
+        return rowsThisEpoch;
+    }
+
+    // Runs epochs until a criterion fires; same contract as GradientDescentTrainer.train
+    StoppingCriteria.Reason train(StoppingCriteria criteria) throws IOException {
+        criteria.start();
+        criteria.setScaling(shift, scale);
+        int first = epochs;
+        StoppingCriteria.Reason reason;
+        do {
+            runEpoch();
+        } while ((reason = criteria.check(epochs - first, loss, gradientNorm, weights, bias)) == null);
+        if (reason == StoppingCriteria.Reason.VALIDATION_PATIENCE && criteria.bestWeights != null) {
+            System.arraycopy(criteria.bestWeights, 0, weights, 0, weights.length);
+            bias = criteria.bestBias;
+        }
+        stopReason = reason;
+        return reason;
+    }
+}
@@ -1,123 +1,203 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class MultiFeatureLinearRegression {
-    static class DataPoint {
-        double[] features;
-        double label;
+    // CSVs larger than this are streamed through CsvBatchSource instead of loaded; parsed doubles
+    // take about as much heap as the text they came from
+    static final long STREAM_THRESHOLD = Runtime.getRuntime().maxMemory() / 4;
 
-        DataPoint(double[] features, double label) {
-            this.features = features;
-            this.label = label;
+    //   java MultiFeatureLinearRegression [--data file.csv] [--metrics out.csv|out.jsonl] [--stream]
+    public static void main(String[] args) throws IOException {
+        String dataPath = "src/housing.csv", metricsPath = null;
+        boolean stream = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data": dataPath = args[++i]; break;
+                case "--metrics": metricsPath = args[++i]; break;
+                case "--stream": stream = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
         }
-    }
 
-    public static void main(String[] args) throws IOException {
-        List<DataPoint> data = loadData("src/housing.csv");
+        // Per-epoch timing, loss and allocation go to a CSV/JSON-lines file when started with
+        // --metrics <path>, and to Flight Recorder when a recording is running. The log is
+        // closed, and its buffered lines flushed, even when training fails
+        List<TrainingListener> listeners = new ArrayList<>();
+        if (JfrTrainingListener.recording())
+            listeners.add(new JfrTrainingListener());
+        try (TrainingMetricsLog metricsLog = metricsPath != null ? new TrainingMetricsLog(metricsPath) : null) {
+            if (metricsLog != null)
+                listeners.add(metricsLog);
+            Path file = Path.of(dataPath);
+            if (stream || Files.isRegularFile(file) && Files.size(file) > STREAM_THRESHOLD)
+                trainStreaming(dataPath, listeners);
+            else
+                trainInMemory(dataPath, listeners);
+        }
+    }
 
-        int numFeatures = data.get(0).features.length;
-        double[] means = new double[numFeatures];
-        double[] stds = new double[numFeatures];
+    // Full-batch gradient descent, mini-batch Adam with a held-out quarter and the normal
+    // equations, compared on one loaded data set
+    static void trainInMemory(String dataPath, List<TrainingListener> listeners) throws IOException {
+        // Feature means and stds are gathered while the CSV is parsed; the trainers standardize
+        // rows as they read them, so the loaded data is never rewritten
+        CsvLoader loader = new CsvLoader();
+        loader.collectStats = true;
+        Dataset data = loadData(dataPath, loader);
+        if (data.isEmpty())
+            return;
+        FeatureStats featureStats = loader.featureStats;
 
-        normalize(data, means, stds);
+        int numFeatures = data.numFeatures;
 
-        double[] weights = new double[numFeatures]; // initialized to 0
-        double bias = 0;
         double lr = 0.01;
         int epochs = 500;
 
-        for (int epoch = 0; epoch <= epochs; epoch++) {
-            double[] grads = new double[numFeatures];
-            double biasGrad = 0;
-            for (DataPoint dp : data) {
-                double pred = bias;
-                for (int j = 0; j < numFeatures; j++)
-                    pred += weights[j] * dp.features[j];
-
-                double error = pred - dp.label;
-                for (int j = 0; j < numFeatures; j++)
-                    grads[j] += error * dp.features[j];
-                biasGrad += error;
-            }
-
-            for (int j = 0; j < numFeatures; j++)
-                weights[j] -= lr * grads[j] / data.size();
-            bias -= lr * biasGrad / data.size();
-
-            if (epoch % 100 == 0)
-                System.out.printf("Epoch %d - MSE: %.4f\n", epoch, computeMSE(data, weights, bias));
-        }
+        // Weights start at 0; the gradient pass is split across all available cores. Training
+        // ends early once an epoch improves the loss by less than 0.01%
+        long start = System.nanoTime();
+        GradientDescentTrainer trainer = new GradientDescentTrainer(data, lr);
+        trainer.setScaling(featureStats);
+        listeners.forEach(trainer::addListener);
+        long trainStart = start;
+        trainer.addListener(stats -> {
+            if (stats.epoch % 100 == 0)
+                System.out.printf("Epoch %d - MSE: %.4f (%.1f ms)\n", stats.epoch, stats.loss, (System.nanoTime() - trainStart) / 1e6);
+        });
+        trainer.train(new StoppingCriteria().maxEpochs(epochs).lossTolerance(1e-4).timeBudget(10_000));
+        trainer.shutdown();
+        System.out.printf("Gradient descent stopped after %d epochs (%s) - MSE: %.4f (%.1f ms)\n", trainer.epochs,
+                trainer.stopReason, computeMSE(data, trainer.rawWeights(), trainer.rawBias()), (System.nanoTime() - start) / 1e6);
+        double[] weights = trainer.weights;
+        double bias = trainer.bias;
+
+        // Same data with shuffled mini-batches and Adam, to compare convergence per unit of time.
+        // The last quarter of the rows is held out; training stops once the validation MSE has
+        // not improved for 10 epochs and keeps the best weights seen. The scaling comes from the
+        // training rows alone, so nothing about the held-out rows leaks into the model
+        start = System.nanoTime();
+        int miniBatchEpochs = 100;
+        int trainRows = data.size - data.size / 4;
+        Optimizer adam = new Optimizer(Optimizer.Type.ADAM, 50, numFeatures + 1);
+        MiniBatchTrainer miniBatch = new MiniBatchTrainer(new DatasetBatchSource(data, 0, trainRows, 42), adam, 4);
+        miniBatch.setScaling(FeatureStats.of(data, 0, trainRows, Runtime.getRuntime().availableProcessors()));
+        listeners.forEach(miniBatch::addListener);
+        StoppingCriteria validation = new StoppingCriteria().maxEpochs(miniBatchEpochs)
+                .validation((w, b) -> computeMSE(data, trainRows, data.size, w, b), 10);
+        miniBatch.train(validation);
+        System.out.printf("Mini-batch stopped after %d epochs (%s) - validation MSE: %.4f, MSE: %.4f (%.1f ms)\n",
+                miniBatch.epochs, miniBatch.stopReason, validation.bestValidationLoss,
+                computeMSE(data, miniBatch.rawWeights(), miniBatch.rawBias()), (System.nanoTime() - start) / 1e6);
+
+        // Exact least-squares fit from a single pass over the data, for reference
+        start = System.nanoTime();
+        double[] exactWeights = new double[numFeatures];
+        double exactBias = NormalEquationSolver.solve(data, exactWeights);
+        System.out.printf("Normal equations - MSE: %.4f (%.1f ms)\n",
+                computeMSE(data, exactWeights, exactBias), (System.nanoTime() - start) / 1e6);
 
         // Predict on one input (example: normalized features)
-        double[] testInput = normalizeInput(new double[]{1000,2,2,1}, means, stds);
-        double pred = bias;
-        for (int i = 0; i < numFeatures; i++) pred += weights[i] * testInput[i];
+        double[] testInput = featureStats.normalize(new double[]{1000,2,2,1});
+        double pred = bias + LinAlg.dot(weights, 0, testInput, 0, numFeatures);
         System.out.println("Predicted price: " + pred);
     }
 
-    static List<DataPoint> loadData(String path) throws IOException {
-        List<DataPoint> data = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line = br.readLine(); // header
-            
-            while ((line = br.readLine()) != null) {
-                String[] tokens = line.split(",");
-                double sqft = Double.parseDouble(tokens[0]);          // e.g. 2300
-                double bed = Double.parseDouble(tokens[1]);     // Bedrooms
-                double bath = Double.parseDouble(tokens[2]);       // Bathrooms
-                double laundry = Double.parseDouble(tokens[3]); // 0 or 1 // Laundry room presence
-                double price = Double.parseDouble(tokens[4]);         // Price (USD)
-                
-                data.add(new DataPoint(new double[]{sqft, bed, bath, laundry}, price));
-            }
-        } // header
-        catch (FileNotFoundException e) {
+    // Mini-batch Adam over shuffled rows read straight from the file, for data larger than the
+    // heap. One streaming pass gathers the scaling statistics, then every epoch re-reads the file.
+    // Adam moves each weight by about its learning rate per step, so the rate follows the label's
+    // spread and the bias starts at the label mean
+    static void trainStreaming(String path, List<TrainingListener> listeners) throws IOException {
+        long start = System.nanoTime();
+        try (CsvBatchSource source = new CsvBatchSource(path, 1 << 16, 42)) {
+            FeatureStats featureStats = source.featureStats();
+            System.out.printf("Streaming %,d rows from %s (%.1f ms for feature statistics)\n",
+                    featureStats.count, path, (System.nanoTime() - start) / 1e6);
+            MiniBatchTrainer trainer = new MiniBatchTrainer(source,
+                    new Optimizer(Optimizer.Type.ADAM, 0.01 * Math.max(source.labelStd, 1e-9), source.numFeatures() + 1), 256);
+            trainer.setScaling(featureStats);
+            trainer.bias = source.labelMean;
+            listeners.forEach(trainer::addListener);
+            trainer.addListener(stats -> System.out.printf("Epoch %d - MSE: %.4f (%.1f ms)\n",
+                    stats.epoch, stats.loss, (System.nanoTime() - start) / 1e6));
+            trainer.train(new StoppingCriteria().maxEpochs(20).lossTolerance(1e-4));
+            System.out.printf("Streamed mini-batch stopped after %d epochs (%s) - weights %s, bias %.4f (%.1f ms)\n",
+                    trainer.epochs, trainer.stopReason, Arrays.toString(trainer.rawWeights()), trainer.rawBias(),
+                    (System.nanoTime() - start) / 1e6);
+        } catch (NoSuchFileException e) {
             System.err.println("File not found: " + path);
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + path);
-        } catch(IndexOutOfBoundsException e) {
-            System.err.println("Data format error in file: " + path);
-        } 
-        return data;
+        } catch (NumberFormatException e) {
+            System.err.println("Data format error in file: " + path + " (" + e.getMessage() + ")");
+        }
     }
 
-    static void normalize(List<DataPoint> data, double[] means, double[] stds) {
-        int numFeatures = data.get(0).features.length;
-        for (int j = 0; j < numFeatures; j++) {
-            for (DataPoint dp : data)
-                means[j] += dp.features[j];
-            means[j] /= data.size();
-        }
+    static Dataset loadData(String path) throws IOException {
+        return loadData(path, new CsvLoader());
+    }
 
-        for (int j = 0; j < numFeatures; j++) {
-            for (DataPoint dp : data)
-                stds[j] += Math.pow(dp.features[j] - means[j], 2);
-            stds[j] = Math.sqrt(stds[j] / data.size());
+    static Dataset loadData(String path, CsvLoader loader) throws IOException {
+        try {
+            Dataset data = loader.load(path); // column count comes from the header
+            System.out.println(loader.summary());
+            return data;
+        } catch (NoSuchFileException e) {
+            System.err.println("File not found: " + path);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + path);
+        } catch (NumberFormatException e) {
+            System.err.println("Data format error in file: " + path + " (" + e.getMessage() + ")");
         }
+        return new Dataset(0);
+    }
 
-        for (DataPoint dp : data) {
-            for (int j = 0; j < numFeatures; j++) {
-                if (stds[j] != 0)
-                    dp.features[j] = (dp.features[j] - means[j]) / stds[j];
-            }
+    // Standardizes data in place and reports the statistics used. Prefer setScaling on the
+    // trainers, which gives the same model without rewriting the data
+    static void normalize(Dataset data, double[] means, double[] stds) {
+        int numFeatures = data.numFeatures;
+        FeatureStats stats = FeatureStats.of(data);
+        System.arraycopy(stats.means(), 0, means, 0, numFeatures);
+        System.arraycopy(stats.stds(), 0, stds, 0, numFeatures);
+        double[] shift = stats.shifts();
+        double[] scale = stats.scales();
+
+        double[] features = data.features;
+        int n = data.size * numFeatures;
+        for (int i = 0; i < n; i += numFeatures) {
+            for (int j = 0; j < numFeatures; j++)
+                features[i + j] = (features[i + j] - shift[j]) * scale[j];
         }
     }
 
+    // Constant features (std 0) pass through unscaled, as in normalize
     static double[] normalizeInput(double[] input, double[] means, double[] stds) {
         double[] out = new double[input.length];
         for (int i = 0; i < input.length; i++)
-            out[i] = (input[i] - means[i]) / stds[i];
+            out[i] = stds[i] != 0 ? (input[i] - means[i]) / stds[i] : input[i];
         return out;
     }
 
-    static double computeMSE(List<DataPoint> data, double[] weights, double bias) {
+    static double computeMSE(Dataset data, double[] weights, double bias) {
+        return computeMSE(data, 0, data.size, weights, bias);
+    }
+
+    // MSE over rows [from, to) only, e.g. a held-out validation range
+    static double computeMSE(Dataset data, int from, int to, double[] weights, double bias) {
+        double[] features = data.features;
+        int numFeatures = data.numFeatures;
         double sum = 0;
-        for (DataPoint dp : data) {
-            double pred = bias;
-            for (int j = 0; j < weights.length; j++)
-                pred += weights[j] * dp.features[j];
-            sum += Math.pow(pred - dp.label, 2);
+        for (int i = from, base = from * numFeatures; i < to; i++, base += numFeatures) {
+            double error = bias + LinAlg.dot(weights, 0, features, base, numFeatures) - data.labels[i];
+            sum += error * error;
         }
-        return sum / data.size();
+        return sum / (to - from);
+    }
+
+    // out[i] = prediction for row i, computed as one matrix-vector product over the whole dataset
+    static void predictBatch(Dataset data, double[] weights, double bias, double[] out) {
+        LinAlg.gemv(data.features, 0, data.size, data.numFeatures, weights, 0, out, 0);
+        for (int i = 0; i < data.size; i++)
+            out[i] += bias;
     }
 }
@@ -0,0 +1,92 @@
+/**
+ * Fits the multi-feature linear model exactly by solving the normal equations in one partitioned
+ * pass over the data, replacing hundreds of gradient descent epochs with a single scan. The pass
+ * gathers RunningStats (column means and centred co-moments, merged across partitions), so the
+ * small d x d system is the correlation matrix of the standardized features. That stays well
+ * conditioned however large or offset the raw values are, where the raw X^T X of a column of
+ * square footages next to a column of bedroom counts would only factor with the ridge fallback.
+ * The standardized solution is then mapped back to weights over raw features.
+ */
+public class NormalEquationSolver {
+    // Past this the O(d^3) solve and O(d^2) per-row accumulation stop beating gradient descent
+    static final int MAX_FEATURES = 512;
+
+    static boolean isSuitable(Dataset data) {
+        return data.numFeatures <= MAX_FEATURES;
+    }
+
+    static double solve(Dataset data, double[] weights) {
+        return solve(data, weights, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Fills weights over raw features and returns the bias. Partial statistics are merged in
+    // partition order, so the result only depends on the thread count, not on scheduling.
+    static double solve(Dataset data, double[] weights, int threads) {
+        RunningStats stats = RunningStats.of(data, threads);
+        double bias = stats.solve(weights);
+        double[] means = stats.featureMeans();
+        double[] stds = stats.featureStds();
+        // w * (x - mean) / std = (w / std) * x - w * mean / std, as ModelSnapshot folds it
+        for (int j = 0; j < weights.length; j++) {
+            if (stds[j] != 0) {
+                weights[j] /= stds[j];
+                bias -= weights[j] * means[j];
+            }
+        }
+        return bias;
+    }
+
+    /**
+     * Solves a * x = b for symmetric a. When a is singular (e.g. a constant or duplicated feature)
+     * a small, growing ridge term is added to the feature diagonal until it factors.
+     */
+    static double[] solveRidgeFallback(double[] a, double[] b, int n, int numFeatures) {
+        double maxDiagonal = 0;
+        for (int i = 0; i < n; i++)
+            maxDiagonal = Math.max(maxDiagonal, a[i * n + i]);
+
+        for (double ridge = 0; ; ridge = ridge == 0 ? 1e-12 * Math.max(maxDiagonal, 1) : ridge * 100) {
+            double[] factor = a.clone();
+            for (int i = 0; i < numFeatures; i++)
+                factor[i * n + i] += ridge;
+            double[] x = b.clone();
+            if (choleskySolve(factor, x, n))
+                return x;
+            if (ridge > maxDiagonal)
+                throw new ArithmeticException("Normal equations could not be solved");
+        }
+    }
+
+    // In-place Cholesky factorization a = L * L^T followed by forward/back substitution into b.
+    // Returns false if a is not positive definite.
+    static boolean choleskySolve(double[] a, double[] b, int n) {
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++)
+                diagonal -= a[j * n + k] * a[j * n + k];
+            if (diagonal <= 1e-12 * Math.abs(a[j * n + j]) || diagonal <= 0)
+                return false;
+            double l = Math.sqrt(diagonal);
+            a[j * n + j] = l;
+            for (int i = j + 1; i < n; i++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++)
+                    sum -= a[i * n + k] * a[j * n + k];
+                a[i * n + j] = sum / l;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++)
+                sum -= a[i * n + k] * b[k];
+            b[i] = sum / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++)
+                sum -= a[k * n + i] * b[k];
+            b[i] = sum / a[i * n + i];
+        }
+        return true;
+    }
+}
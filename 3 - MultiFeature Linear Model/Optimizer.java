@@ -0,0 +1,51 @@
+/**
+ * Per-parameter update rules for mini-batch training.
+ * Parameters are addressed by index so a trainer can keep its weights in whatever arrays it
+ * likes; the optimizer only owns its own state (velocity, or Adam's first and second moments).
+ */
+public class Optimizer {
+    enum Type { SGD, MOMENTUM, ADAM }
+
+    private static final double EPSILON = 1e-8;
+
+    final Type type;
+    double learningRate;
+    double beta1 = 0.9;     // momentum / Adam first-moment decay
+    double beta2 = 0.999;   // Adam second-moment decay
+
+    private final double[] velocity;  // momentum, or Adam's first moment
+    private final double[] squared;   // Adam's second moment
+    private int step;
+    private double correction1 = 1, correction2 = 1;
+
+    Optimizer(Type type, double learningRate, int numParams) {
+        this.type = type;
+        this.learningRate = learningRate;
+        this.velocity = new double[numParams];
+        this.squared = type == Type.ADAM ? new double[numParams] : null;
+    }
+
+    // Call once per update, before the delta() calls for that update
+    void beginStep() {
+        step++;
+        if (type == Type.ADAM) {
+            correction1 = 1 - Math.pow(beta1, step);
+            correction2 = 1 - Math.pow(beta2, step);
+        }
+    }
+
+    // Amount to subtract from parameter i given its gradient
+    double delta(int i, double grad) {
+        switch (type) {
+            case MOMENTUM:
+                velocity[i] = beta1 * velocity[i] + grad;
+                return learningRate * velocity[i];
+            case ADAM:
+                velocity[i] = beta1 * velocity[i] + (1 - beta1) * grad;
+                squared[i] = beta2 * squared[i] + (1 - beta2) * grad * grad;
+                return learningRate * (velocity[i] / correction1) / (Math.sqrt(squared[i] / correction2) + EPSILON);
+            default:
+                return learningRate * grad;
+        }
+    }
+}
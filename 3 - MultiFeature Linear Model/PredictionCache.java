@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+/**
+ * Bounded LRU cache of predictions for one served model, keyed by feature vector.
+ * Everything is stored in primitive arrays:
+ *   - feature keys in one flat double[], matched bit for bit (doubleToLongBits)
+ *   - an open-addressing table of entry indices with linear probing
+ *   - the recency list as int links
+ * A lookup therefore allocates nothing. NaN marks a miss internally, so NaN predictions are never
+ * cached. The cache belongs to one snapshot, told apart by ModelSnapshot.id rather than by the
+ * saved version, which a retrained model may share with its predecessor. The first call with a
+ * newer snapshot clears it. Calls still carrying an older snapshot, e.g. requests parsed just
+ * before a swap, bypass the cache: they miss and are not stored. So the cache only ever moves
+ * forward and never flips back and forth between two models. All methods are synchronized; a
+ * critical section is one hash probe.
+ */
+public class PredictionCache {
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final int[] table;          // entry index + 1 per slot, 0 when empty
+    private final int mask;
+    private final long[] hashes;
+    private final double[] values;
+    private final int[] prev, next;     // recency list, head is most recently used
+    private double[] keys = new double[0];
+    private int numFeatures = -1;
+    private long modelId = -1;         // ModelSnapshot.id the entries belong to
+    private int size, head = NONE, tail = NONE;
+
+    private long hits, misses, evictions, invalidations;
+
+    PredictionCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity must be positive, got " + capacity);
+        this.capacity = capacity;
+        // At most half full, so probe runs stay short
+        this.table = new int[Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1];
+        this.mask = table.length - 1;
+        this.hashes = new long[capacity];
+        this.values = new double[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+    }
+
+    // Cached prediction for one raw row, or the snapshot's own prediction, which is then cached
+    double predict(ModelSnapshot model, double[] features) {
+        double value = lookup(model, features, 0);
+        if (Double.isNaN(value)) {
+            value = model.predict(features);
+            put(model, features, 0, value);
+        }
+        return value;
+    }
+
+    // Looks up the row at features[offset ..] and writes a hit to out[outIndex]
+    boolean get(ModelSnapshot model, double[] features, int offset, double[] out, int outIndex) {
+        double value = lookup(model, features, offset);
+        if (Double.isNaN(value))
+            return false;
+        out[outIndex] = value;
+        return true;
+    }
+
+    // The cached value for the row at features[offset ..], or NaN on a miss
+    private synchronized double lookup(ModelSnapshot model, double[] features, int offset) {
+        if (!adopt(model)) {
+            misses++;
+            return Double.NaN;
+        }
+        long hash = hash(features, offset);
+        int entry = find(hash, features, offset);
+        if (entry == NONE) {
+            misses++;
+            return Double.NaN;
+        }
+        hits++;
+        moveToFront(entry);
+        return values[entry];
+    }
+
+    synchronized void put(ModelSnapshot model, double[] features, int offset, double value) {
+        if (Double.isNaN(value) || !adopt(model))
+            return;
+        long hash = hash(features, offset);
+        int entry = find(hash, features, offset);
+        if (entry != NONE) {
+            values[entry] = value;
+            moveToFront(entry);
+            return;
+        }
+        if (size < capacity) {
+            entry = size++;
+        } else {
+            entry = tail;
+            unlink(entry);
+            removeFromTable(entry);
+            evictions++;
+        }
+        hashes[entry] = hash;
+        values[entry] = value;
+        System.arraycopy(features, offset, keys, entry * numFeatures, numFeatures);
+        int slot = (int) hash & mask;
+        while (table[slot] != 0)
+            slot = (slot + 1) & mask;
+        table[slot] = entry + 1;
+        linkFirst(entry);
+    }
+
+    synchronized void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        head = tail = NONE;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    synchronized long invalidations() {
+        return invalidations;
+    }
+
+    synchronized double hitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d entries, hit rate %.1f%% (%d hits, %d misses), %d evictions, %d invalidations",
+                size, capacity, 100 * hitRate(), hits, misses, evictions, invalidations);
+    }
+
+    // Drops every entry when a newer snapshot arrives; false for an older one, which must bypass the cache
+    private boolean adopt(ModelSnapshot model) {
+        if (model.id == modelId)
+            return true;
+        if (model.id < modelId)
+            return false;
+        if (model.numFeatures() != numFeatures) {
+            numFeatures = model.numFeatures();
+            keys = new double[capacity * numFeatures];
+        }
+        if (size > 0)
+            invalidations++;
+        modelId = model.id;
+        clear();
+        return true;
+    }
+
+    private long hash(double[] features, int offset) {
+        long h = modelId;
+        for (int j = 0; j < numFeatures; j++)
+            h = (h ^ Double.doubleToLongBits(features[offset + j])) * 0x9E3779B97F4A7C15L;
+        // Final avalanche (MurmurHash3 fmix64) so the low bits used for the slot depend on every feature
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private int find(long hash, double[] features, int offset) {
+        for (int slot = (int) hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (hashes[entry] == hash && sameKey(entry, features, offset))
+                return entry;
+        }
+        return NONE;
+    }
+
+    private boolean sameKey(int entry, double[] features, int offset) {
+        int base = entry * numFeatures;
+        for (int j = 0; j < numFeatures; j++) {
+            if (Double.doubleToLongBits(keys[base + j]) != Double.doubleToLongBits(features[offset + j]))
+                return false;
+        }
+        return true;
+    }
+
+    // Backward-shift deletion: later entries of the probe run move up into the gap, so lookups
+    // never need tombstones
+    private void removeFromTable(int entry) {
+        int gap = (int) hashes[entry] & mask;
+        while (table[gap] != entry + 1)
+            gap = (gap + 1) & mask;
+        for (int slot = (gap + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int home = (int) hashes[table[slot] - 1] & mask;
+            // An entry may only move back to the gap if its home slot is not after the gap
+            boolean homeBetween = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+            if (!homeBetween) {
+                table[gap] = table[slot];
+                gap = slot;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private void moveToFront(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    private void linkFirst(int entry) {
+        prev[entry] = NONE;
+        next[entry] = head;
+        if (head != NONE)
+            prev[head] = entry;
+        head = entry;
+        if (tail == NONE)
+            tail = entry;
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE)
+            next[prev[entry]] = next[entry];
+        else
+            head = next[entry];
+        if (next[entry] != NONE)
+            prev[next[entry]] = prev[entry];
+        else
+            tail = prev[entry];
+    }
+}
@@ -2,23 +2,38 @@ import java.awt.*;
 import java.io.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*; // Added for array printing
 
 public class RegressionDashboard extends JFrame {
 
     private MultiFeatureLinearRegression model; // Instance of your model
-    private double[] currentWeights;
-    private double currentBias;
-    private double[] currentMeans;
-    private double[] currentStds;
-    private List<MultiFeatureLinearRegression.DataPoint> currentData; // Store current data
+    private final AtomicReference<ModelSnapshot> currentModel = new AtomicReference<>(); // Model serving predictions, swapped whole on retrain
+    private final AtomicLong modelVersions = new AtomicLong();
+    private final PredictionCache predictionCache = new PredictionCache(1024); // Emptied whenever a new model version predicts
+    private final double[] predictionResult = new double[1]; // Reused by predictPrice, which only runs on the event thread
+    private Dataset currentData; // Store current data
+    private RunningStats currentStats; // Sufficient statistics for incremental updates, null when training by gradient descent
+    private TrainingWorker activeTraining; // Background training run, null when idle
+    private CompactionWorker activeCompaction; // Background row log compaction, null when idle
+    private RowLog rowLog; // Labelled rows added from the UI, durable without rewriting DATA_FILE; opened by openRowLog()
+    private boolean rowLogFailed; // The row log could not be opened; new data cannot be added
+    private long rowLogOffset; // Row log position currentData has been read up to
+    private long rowLogGeneration; // Log generation that offset belongs to; compaction starts a new one
 
     // UI Components
     private JTextField sqftField, bedField, bathField, laundryField;
-    private JButton predictButton, addDataButton, viewWeightsButton, retrainButton;
+    private JButton predictButton, addDataButton, viewWeightsButton, retrainButton, cancelButton;
     private JTextArea outputArea;
 
     private static final String DATA_FILE = "src/housing.csv"; // Your data file
+    private static final String MODEL_FILE = "src/housing.model"; // Last trained model, reused on startup
+    private static final String ROW_LOG_FILE = "src/housing.rowlog"; // Rows added since the last compaction
+    private static final String COMPACTED_FILE = "src/housing.javd"; // DATA_FILE plus compacted log rows; replaces the CSV once written
+    private static final int COMPACT_AFTER_ROWS = 1024; // Log size at which it is folded into COMPACTED_FILE
 
     public RegressionDashboard() {
         super("Multi-Feature Linear Regression Dashboard");
@@ -32,9 +47,7 @@ public class RegressionDashboard extends JFrame {
         JScrollPane scrollPane = new JScrollPane(outputArea);
         add(scrollPane, BorderLayout.SOUTH);
 
-        // Initialize the model and load initial data
         model = new MultiFeatureLinearRegression();
-        loadAndTrainModel(); // Initial load and train
 
         // --- Input Panel ---
         JPanel inputPanel = new JPanel(new GridLayout(5, 2, 10, 10));
@@ -64,11 +77,14 @@ public class RegressionDashboard extends JFrame {
         addDataButton = new JButton("Add New Data & Retrain");
         viewWeightsButton = new JButton("View Model Weights");
         retrainButton = new JButton("Retrain Model"); // New button for explicit retraining
+        cancelButton = new JButton("Cancel Training");
+        cancelButton.setEnabled(false);
 
         buttonPanel.add(predictButton);
         buttonPanel.add(addDataButton);
         buttonPanel.add(viewWeightsButton);
         buttonPanel.add(retrainButton);
+        buttonPanel.add(cancelButton);
 
         add(buttonPanel, BorderLayout.CENTER);
 
@@ -77,61 +93,294 @@ public class RegressionDashboard extends JFrame {
         addDataButton.addActionListener(e -> addNewData());
         viewWeightsButton.addActionListener(e -> displayWeights());
         retrainButton.addActionListener(e -> retrainModelExplicitly());
+        cancelButton.addActionListener(e -> cancelTraining());
 
         setVisible(true);
+
+        // Start from the saved model when there is one; otherwise load and train, once the
+        // buttons it toggles exist
+        if (!loadSavedModel())
+            loadAndTrainModel();
     }
 
+    // Starts a background load-and-train run. The current model keeps serving predictions until
+    // the run finishes; a cancelled or failed run leaves it untouched.
     private void loadAndTrainModel() {
-        try {
-            currentData = model.loadData(DATA_FILE);
-            if (currentData.isEmpty()) {
-                outputArea.append("Error: No data loaded from " + DATA_FILE + "\n");
+        startTraining(null);
+    }
+
+    // Trains on rows already in memory, or loads them first when data is null
+    private void startTraining(Dataset data) {
+        if (activeTraining != null || activeCompaction != null)
+            return;
+        activeTraining = new TrainingWorker(data);
+        setTrainingControls(true);
+        activeTraining.execute();
+    }
+
+    // Not interrupted: the worker may be reading the row log, and an interrupt would close the
+    // log's channel for the rest of the session. Training polls isCancelled() every epoch instead
+    private void cancelTraining() {
+        if (activeTraining != null)
+            activeTraining.cancel(false);
+    }
+
+    // Opens ROW_LOG_FILE on first use, once the feature count is known from the data or a saved
+    // model. Called from the EDT and the training worker; null, after one report, if it cannot be opened
+    private synchronized RowLog openRowLog(int numFeatures, java.util.function.Consumer<String> report) {
+        if (rowLog == null && !rowLogFailed && numFeatures > 0) {
+            try {
+                rowLog = RowLog.open(ROW_LOG_FILE, numFeatures);
+            } catch (IOException e) {
+                rowLogFailed = true;
+                report.accept("Warning: could not open " + ROW_LOG_FILE + " (" + e.getMessage() + "); new data cannot be added.");
+            }
+        }
+        return rowLog;
+    }
+
+    // Folds the log rows currentData holds into COMPACTED_FILE on a worker thread. Not started
+    // while a training run may replace currentData; retraining waits for it in turn
+    private void startCompaction(RowLog log) {
+        if (activeCompaction != null || activeTraining != null)
+            return;
+        activeCompaction = new CompactionWorker(log, currentData, rowLogOffset);
+        retrainButton.setEnabled(false);
+        activeCompaction.execute();
+    }
+
+    /**
+     * Runs RowLog.compact off the Event Dispatch Thread: the dataset file write, fsync and log
+     * rotation take far longer than an append. Rows added meanwhile are appended to the log but
+     * not read into currentData, which the worker is saving; done() installs the new log offset
+     * and generation, then reads them in.
+     */
+    private class CompactionWorker extends SwingWorker<Long, Void> {
+        private final RowLog log;
+        private final Dataset data;
+        private final long rowsCovered;
+
+        CompactionWorker(RowLog log, Dataset data, long rowsCovered) {
+            this.log = log;
+            this.data = data;
+            this.rowsCovered = rowsCovered;
+        }
+
+        @Override
+        protected Long doInBackground() throws IOException {
+            long start = System.nanoTime();
+            log.compact(data, rowsCovered, COMPACTED_FILE);
+            return System.nanoTime() - start;
+        }
+
+        @Override
+        protected void done() {
+            activeCompaction = null;
+            retrainButton.setEnabled(activeTraining == null);
+            try {
+                long nanos = get();
+                rowLogOffset -= rowsCovered;
+                rowLogGeneration = log.generation();
+                outputArea.append(String.format("Compacted %,d rows into %s in %.1f ms\n", data.size, COMPACTED_FILE, nanos / 1e6));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 return;
+            } catch (ExecutionException e) {
+                outputArea.append("Error compacting " + ROW_LOG_FILE + ": " + e.getCause().getMessage() + "\n");
+            }
+            try {
+                if (log.rows() > rowLogOffset)
+                    readNewRows(log);
+            } catch (IOException e) {
+                outputArea.append("Error reading " + ROW_LOG_FILE + ": " + e.getMessage() + "\n");
             }
+        }
+    }
+
+    private void setTrainingControls(boolean training) {
+        addDataButton.setEnabled(!training);
+        retrainButton.setEnabled(!training);
+        cancelButton.setEnabled(training);
+    }
 
-            int numFeatures = currentData.get(0).features.length;
-            currentMeans = new double[numFeatures];
-            currentStds = new double[numFeatures];
-            model.normalize(currentData, currentMeans, currentStds);
-
-            currentWeights = new double[numFeatures]; // Initialize weights for training
-            Arrays.fill(currentWeights, 0.0); // Ensure weights are reset
-            currentBias = 0.0;
-
-            // Retrain the model
-            int epochs = 500;
-            double lr = 0.01;
-
-            outputArea.append("Starting model training...\n");
-            for (int epoch = 0; epoch <= epochs; epoch++) {
-                double[] grads = new double[numFeatures];
-                double biasGrad = 0;
-                for (MultiFeatureLinearRegression.DataPoint dp : currentData) {
-                    double pred = currentBias;
-                    for (int j = 0; j < numFeatures; j++)
-                        pred += currentWeights[j] * dp.features[j];
-
-                    double error = pred - dp.label;
-                    for (int j = 0; j < numFeatures; j++)
-                        grads[j] += error * dp.features[j];
-                    biasGrad += error;
+    // Model produced by a training run, handed from the worker thread to the EDT in one piece
+    private static class TrainingResult {
+        Dataset data;
+        RunningStats stats;
+        ModelSnapshot model;
+        long rowLogOffset;
+        long rowLogGeneration;
+    }
+
+    /**
+     * Loads the training rows and trains off the Event Dispatch Thread. Rows come from
+     * COMPACTED_FILE, or DATA_FILE before the first compaction, followed by the rows in the row log.
+     * Progress lines are published to outputArea, and the result is installed on the EDT in done().
+     */
+    private class TrainingWorker extends SwingWorker<TrainingResult, String> {
+        private final Dataset loaded; // rows already in memory, or null to load them
+
+        TrainingWorker(Dataset loaded) {
+            this.loaded = loaded;
+        }
+
+        @Override
+        protected TrainingResult doInBackground() throws Exception {
+            TrainingResult result = new TrainingResult();
+            Dataset data;
+            FeatureStats featureStats;
+            DatasetFile file = null;
+            if (loaded != null) {
+                data = loaded;
+                featureStats = FeatureStats.of(data);
+                result.rowLogOffset = rowLogOffset;
+                result.rowLogGeneration = rowLogGeneration;
+            } else if (new File(COMPACTED_FILE).exists()) {
+                long start = System.nanoTime();
+                file = new DatasetFile();
+                data = file.load(COMPACTED_FILE);
+                featureStats = FeatureStats.of(data);
+                publish(String.format("Loaded %,d rows from %s in %.1f ms", data.size, COMPACTED_FILE, (System.nanoTime() - start) / 1e6));
+            } else {
+                CsvLoader loader = new CsvLoader();
+                loader.collectStats = true;
+                data = loader.load(DATA_FILE);
+                featureStats = loader.featureStats;
+                publish(loader.summary());
+            }
+            RowLog log = loaded == null ? openRowLog(data.numFeatures, this::publish) : null;
+            if (log != null) {
+                // Log rows the file already holds are skipped; a newer log generation holds none of them
+                if (file != null && file.logGeneration == log.generation())
+                    result.rowLogOffset = file.logRows;
+                int before = data.size;
+                result.rowLogOffset = log.tail(result.rowLogOffset, data);
+                for (int i = before; i < data.size; i++)
+                    featureStats.add(data.features, i * data.numFeatures);
+                if (data.size > before)
+                    publish(String.format("Read %,d added rows from %s", data.size - before, ROW_LOG_FILE));
+                if (log.rows() >= COMPACT_AFTER_ROWS && !isCancelled()) {
+                    long start = System.nanoTime();
+                    log.compact(data, result.rowLogOffset, COMPACTED_FILE);
+                    result.rowLogOffset = 0;
+                    publish(String.format("Compacted %,d rows into %s in %.1f ms", data.size, COMPACTED_FILE, (System.nanoTime() - start) / 1e6));
+                }
+                result.rowLogGeneration = log.generation();
+            }
+            if (isCancelled())
+                return null;
+            if (data.isEmpty()) {
+                publish("Error: No data loaded from " + DATA_FILE);
+                return null;
+            }
+            result.data = data;
+
+            // Small models are solved exactly from running statistics gathered in one scan, which
+            // also lets new rows be folded in later; wide ones fall back to gradient descent
+            publish("Starting model training...");
+            if (NormalEquationSolver.isSuitable(data)) {
+                long start = System.nanoTime();
+                result.stats = RunningStats.of(data);
+                result.model = solveSnapshot(result.stats, data.featureNames);
+                publish(String.format("Solved normal equations in %.1f ms - MSE: %.4f",
+                        (System.nanoTime() - start) / 1e6, result.stats.mse(result.model.weights(), result.model.bias)));
+            } else {
+                // Standardized on read with the statistics gathered while loading
+                int epochs = 500;
+                double lr = 0.01;
+
+                GradientDescentTrainer trainer = new GradientDescentTrainer(data, lr);
+                trainer.setScaling(featureStats);
+                if (JfrTrainingListener.recording())
+                    trainer.addListener(new JfrTrainingListener());
+                trainer.addListener(stats -> {
+                    if (stats.epoch % 100 == 0)
+                        publish(String.format("Epoch %d - MSE: %.4f (%.2f ms/epoch, %,.0f samples/s)",
+                                stats.epoch, stats.loss, stats.nanos / 1e6, stats.samplesPerSecond()));
+                });
+                try {
+                    StoppingCriteria criteria = new StoppingCriteria().maxEpochs(epochs).lossTolerance(1e-6)
+                            .timeBudget(60_000).cancelWhen(this::isCancelled);
+                    if (trainer.train(criteria) == StoppingCriteria.Reason.CANCELLED)
+                        return null;
+                    publish(String.format("Stopped after %d epochs (%s)", trainer.epochs, trainer.stopReason));
+                } finally {
+                    trainer.shutdown();
                 }
+                result.model = new ModelSnapshot(modelVersions.incrementAndGet(), trainer.weights, trainer.bias,
+                        featureStats.means(), featureStats.stds(), data.featureNames);
+            }
+            return result;
+        }
 
-                for (int j = 0; j < numFeatures; j++)
-                    currentWeights[j] -= lr * grads[j] / currentData.size();
-                currentBias -= lr * biasGrad / currentData.size();
+        @Override
+        protected void process(List<String> lines) {
+            for (String line : lines)
+                outputArea.append(line + "\n");
+        }
 
-                if (epoch % 100 == 0) {
-                    outputArea.append(String.format("Epoch %d - MSE: %.4f\n", epoch, model.computeMSE(currentData, currentWeights, currentBias)));
+        @Override
+        protected void done() {
+            activeTraining = null;
+            setTrainingControls(false);
+            try {
+                TrainingResult result = get();
+                if (result == null)
+                    return;
+                currentData = result.data;
+                currentStats = result.stats;
+                rowLogOffset = result.rowLogOffset;
+                rowLogGeneration = result.rowLogGeneration;
+                currentModel.set(result.model);
+                outputArea.append("Model training complete.\n");
+                saveModel(result.model);
+            } catch (CancellationException e) {
+                outputArea.append("Training cancelled; the previous model is still in use.\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    outputArea.append("Error loading or processing data: " + cause.getMessage() + "\n");
+                } else {
+                    outputArea.append("An unexpected error occurred during model loading/training: " + cause.getMessage() + "\n");
+                    cause.printStackTrace();
                 }
             }
-            outputArea.append("Model training complete.\n");
+        }
+    }
+
+    // Derives a new model version from running statistics; cost depends only on the feature count
+    private ModelSnapshot solveSnapshot(RunningStats stats, String[] featureNames) {
+        double[] weights = new double[stats.numFeatures];
+        double bias = stats.solve(weights);
+        return new ModelSnapshot(modelVersions.incrementAndGet(), weights, bias, stats.featureMeans(), stats.featureStds(), featureNames);
+    }
 
+    // Installs the model saved by a previous run, without reading the training data
+    private boolean loadSavedModel() {
+        if (!new File(MODEL_FILE).exists())
+            return false;
+        try {
+            long start = System.nanoTime();
+            ModelSnapshot saved = ModelIO.load(MODEL_FILE);
+            modelVersions.set(saved.version);
+            currentModel.set(saved);
+            openRowLog(saved.numFeatures(), line -> outputArea.append(line + "\n"));
+            outputArea.append(String.format("Loaded saved model version %d from %s in %.2f ms\n",
+                    saved.version, MODEL_FILE, (System.nanoTime() - start) / 1e6));
+            return true;
         } catch (IOException e) {
-            outputArea.append("Error loading or processing data: " + e.getMessage() + "\n");
-        } catch (Exception e) {
-            outputArea.append("An unexpected error occurred during model loading/training: " + e.getMessage() + "\n");
-            e.printStackTrace();
+            outputArea.append("Could not load saved model (" + e.getMessage() + "); training from data instead.\n");
+            return false;
+        }
+    }
+
+    private void saveModel(ModelSnapshot snapshot) {
+        try {
+            ModelIO.save(snapshot, MODEL_FILE);
+        } catch (IOException e) {
+            outputArea.append("Warning: could not save model to " + MODEL_FILE + ": " + e.getMessage() + "\n");
         }
     }
 
@@ -142,19 +391,23 @@ public class RegressionDashboard extends JFrame {
             double bath = Double.parseDouble(bathField.getText());
             double laundry = Double.parseDouble(laundryField.getText());
 
-            double[] inputFeatures = new double[]{sqft, bed, bath, laundry};
-            double[] normalizedInput = model.normalizeInput(inputFeatures, currentMeans, currentStds);
-
-            double predictedPrice = currentBias;
-            for (int i = 0; i < currentWeights.length; i++) {
-                predictedPrice += currentWeights[i] * normalizedInput[i];
+            ModelSnapshot snapshot = currentModel.get();
+            if (snapshot == null) {
+                outputArea.append("Error: Model not yet trained or data not loaded. Please ensure the data file is present and valid.\n");
+                return;
             }
-            outputArea.append(String.format("Predicted Price for [%.0f, %.0f, %.0f, %.0f]: $%.2f\n", sqft, bed, bath, laundry, predictedPrice));
+            double[] features = {sqft, bed, bath, laundry};
+            double[] result = predictionResult;
+            boolean cached = predictionCache.get(snapshot, features, 0, result, 0);
+            if (!cached) {
+                result[0] = snapshot.predict(features);
+                predictionCache.put(snapshot, features, 0, result[0]);
+            }
+            outputArea.append(String.format("Predicted Price for [%.0f, %.0f, %.0f, %.0f]: $%.2f%s\n", sqft, bed, bath, laundry,
+                    result[0], cached ? " (cached, hit rate " + Math.round(100 * predictionCache.hitRate()) + "%)" : ""));
 
         } catch (NumberFormatException ex) {
             outputArea.append("Error: Please enter valid numerical values for all fields.\n");
-        } catch (NullPointerException ex) {
-            outputArea.append("Error: Model not yet trained or data not loaded. Please ensure the data file is present and valid.\n");
         } catch (Exception ex) {
             outputArea.append("An error occurred during prediction: " + ex.getMessage() + "\n");
             ex.printStackTrace();
@@ -167,41 +420,45 @@ public class RegressionDashboard extends JFrame {
             double bed = Double.parseDouble(bedField.getText());
             double bath = Double.parseDouble(bathField.getText());
             double laundry = Double.parseDouble(laundryField.getText());
-            
-            // For adding new data, we assume a placeholder for price, 
-            // as we don't have a new label input field in this UI for it.
-            // In a real scenario, you'd likely have a separate input for the actual price
-            // of the new data point you're adding to retrain on.
-            // For simplicity, let's just use the current prediction as a "placeholder" or assume it's for future prediction
-            // if we were to only add features.
-            // However, for retraining, we need a label. Let's assume the user intends to add a *complete* new data point.
-            // For this example, let's make a dummy price for the new data point for demonstration purposes,
-            // or better, if the user is adding new *training* data, they should provide the label.
-            // To be practical for adding "training data", we'd need another input field for the actual price (label).
-            // For now, let's assume the intent is to add to the CSV for future retraining.
-            
-            String newLine = String.format("%.0f,%.0f,%.0f,%.0f,0.0\n", sqft, bed, bath, laundry); // Placeholder 0.0 for price, user should manually edit or provide.
-                                                                                                    //  A better UI would have a price input for new training data.
 
             // To actually add new TRAINING data, the user MUST input a price.
-            // For simplicity in this example, I'll prompt the user for the price.
             String priceStr = JOptionPane.showInputDialog(this, "Enter the actual price for the new data point:");
             if (priceStr == null || priceStr.trim().isEmpty()) {
                 outputArea.append("New data not added: Price not provided.\n");
                 return;
             }
             double price = Double.parseDouble(priceStr);
-            newLine = String.format("%.0f,%.0f,%.0f,%.0f,%.2f\n", sqft, bed, bath, laundry, price);
-
-            try (FileWriter fw = new FileWriter(DATA_FILE, true); // true for append mode
-                 BufferedWriter bw = new BufferedWriter(fw);
-                 PrintWriter out = new PrintWriter(bw)) {
-                out.print(newLine); // Use print to avoid an extra newline if BufferedWriter adds one
-                outputArea.append("Added new data point to " + DATA_FILE + ": " + newLine.trim() + "\n");
-                outputArea.append("Retraining model with new data...\n");
-                loadAndTrainModel(); // Retrain the model with the updated data
+            // The log takes its row width from the model; until one exists it is opened by the load
+            ModelSnapshot snapshot = currentModel.get();
+            RowLog log = openRowLog(snapshot != null ? snapshot.numFeatures() : 0, line -> outputArea.append(line + "\n"));
+            if (log == null) {
+                outputArea.append("New data not added: " + ROW_LOG_FILE + (rowLogFailed ? " could not be opened.\n" : " is opened once the data has loaded.\n"));
+                return;
+            }
+
+            try {
+                // Durable once append returns; the CSV is never rewritten
+                long start = System.nanoTime();
+                log.append(new double[]{sqft, bed, bath, laundry}, price);
+                outputArea.append(String.format("Added new data point to %s in %.2f ms: %.0f,%.0f,%.0f,%.0f,%.2f\n",
+                        ROW_LOG_FILE, (System.nanoTime() - start) / 1e6, sqft, bed, bath, laundry, price));
+                if (activeCompaction != null) {
+                    outputArea.append("The model picks the row up once compaction finishes.\n");
+                    return;
+                }
+                // Without loaded rows, or with rows read from a log generation since compacted away
+                // (a cancelled run), the data is loaded afresh
+                if (currentData == null || rowLogGeneration != log.generation()) {
+                    outputArea.append("Retraining model with new data...\n");
+                    loadAndTrainModel();
+                    return;
+                }
+
+                readNewRows(log);
+                if (log.rows() >= COMPACT_AFTER_ROWS)
+                    startCompaction(log);
             } catch (IOException e) {
-                outputArea.append("Error writing to file: " + e.getMessage() + "\n");
+                outputArea.append("Error writing to " + ROW_LOG_FILE + ": " + e.getMessage() + "\n");
             }
 
         } catch (NumberFormatException ex) {
@@ -212,23 +469,47 @@ public class RegressionDashboard extends JFrame {
         }
     }
 
+    // Reads the rows appended to the log since the last read into currentData and updates the model
+    private void readNewRows(RowLog log) throws IOException {
+        // Only rows appended since the last read are copied in
+        int before = currentData.size;
+        rowLogOffset = log.tail(rowLogOffset, currentData);
+        if (currentData.size == before)
+            return;
+        if (currentStats != null) {
+            // Fold the rows into the running statistics instead of re-reading the file
+            int numFeatures = currentData.numFeatures;
+            for (int i = before; i < currentData.size; i++)
+                currentStats.add(currentData.features, i * numFeatures, currentData.labels[i]);
+            ModelSnapshot updated = solveSnapshot(currentStats, currentData.featureNames);
+            currentModel.set(updated);
+            saveModel(updated);
+            outputArea.append(String.format("Model updated incrementally - MSE: %.4f\n",
+                    currentStats.mse(updated.weights(), updated.bias)));
+        } else {
+            outputArea.append("Retraining model with new data...\n");
+            startTraining(currentData);
+        }
+    }
+
     private void displayWeights() {
-        if (currentWeights == null || currentMeans == null || currentStds == null) {
+        ModelSnapshot snapshot = currentModel.get();
+        if (snapshot == null) {
             outputArea.append("Model not yet trained. Please ensure data is loaded and trained.\n");
             return;
         }
-        outputArea.append("--- Model Weights and Bias ---\n");
-        outputArea.append("Weights (normalized features): " + Arrays.toString(currentWeights) + "\n");
-        outputArea.append("Bias: " + currentBias + "\n");
-        outputArea.append("Feature Means: " + Arrays.toString(currentMeans) + "\n");
-        outputArea.append("Feature Standard Deviations: " + Arrays.toString(currentStds) + "\n");
+        outputArea.append("--- Model Weights and Bias (version " + snapshot.version + ") ---\n");
+        outputArea.append("Weights (normalized features): " + Arrays.toString(snapshot.weights()) + "\n");
+        outputArea.append("Bias: " + snapshot.bias + "\n");
+        outputArea.append("Feature Means: " + Arrays.toString(snapshot.means()) + "\n");
+        outputArea.append("Feature Standard Deviations: " + Arrays.toString(snapshot.stds()) + "\n");
+        outputArea.append("Prediction cache: " + predictionCache + "\n");
         outputArea.append("------------------------------\n");
     }
 
     private void retrainModelExplicitly() {
         outputArea.append("Initiating explicit model retraining...\n");
         loadAndTrainModel();
-        outputArea.append("Explicit retraining complete.\n");
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,346 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of labelled training rows, so new rows are durable without rewriting or
+ * re-parsing the CSV.
+ *
+ * Layout (little-endian):
+ *   header: magic "JAVR" | format version u16 | reserved u16 | feature count i32 | generation i64
+ *   records: label f64 | features f64 each | CRC32 of the record (i32)
+ *
+ * append() returns once its row has been forced to disk. Appends are group-committed: while one
+ * thread writes and forces a batch, rows appended meanwhile collect in a second buffer, and
+ * the next thread to need them writes them all with one write and one fsync. On open, a torn
+ * or corrupt trailing record (a crash mid-write) is cut off.
+ *
+ * tail() copies rows from a given offset into a Dataset, so a trainer reads only rows it has not
+ * seen. compact() folds the rows into a DatasetFile and starts the next generation of the log,
+ * holding only rows appended since.
+ */
+public class RowLog implements Closeable {
+    private static final int MAGIC = 0x5256414A; // "JAVR" read little-endian
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    private final Path path;
+    final int numFeatures;
+    private final int recordSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private final CRC32 crc = new CRC32();  // guarded by lock
+    private final AtomicBoolean compacting = new AtomicBoolean(); // set while compact() runs
+
+    // All guarded by lock
+    private FileChannel channel;
+    private long generation;
+    private long rows;                  // durable rows in the current generation
+    private ByteBuffer pending;         // encoded rows not yet handed to a writer
+    private ByteBuffer spare;
+    private long appended, synced;      // sequence numbers of rows accepted and forced so far
+    private boolean writing;            // a thread is writing a batch outside the lock
+    private IOException failure;        // a failed write or fsync poisons the log
+    private long commits;
+
+    private RowLog(Path path, int numFeatures, FileChannel channel, long generation, long rows) {
+        this.path = path;
+        this.numFeatures = numFeatures;
+        this.recordSize = (numFeatures + 1) * 8 + 4;
+        this.channel = channel;
+        this.generation = generation;
+        this.rows = rows;
+        this.pending = ByteBuffer.allocate(recordSize * 64).order(ByteOrder.LITTLE_ENDIAN);
+        this.spare = ByteBuffer.allocate(recordSize * 64).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Opens the log at path, creating it when missing, and drops any torn trailing record
+    static RowLog open(String path, int numFeatures) throws IOException {
+        Path file = Path.of(path);
+        if (!Files.exists(file))
+            writeGeneration(file, numFeatures, 1, ByteBuffer.allocate(0));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) != HEADER_SIZE || header.getInt(0) != MAGIC)
+                throw new IOException("Not a row log: " + path);
+            if (header.getShort(4) != FORMAT_VERSION)
+                throw new IOException("Unsupported row log format version " + header.getShort(4) + " in " + path);
+            if (header.getInt(8) != numFeatures)
+                throw new IOException("Row log " + path + " has " + header.getInt(8) + " features, expected " + numFeatures);
+
+            RowLog log = new RowLog(file, numFeatures, channel, header.getLong(12), 0);
+            long valid = log.countValidRows();
+            long end = HEADER_SIZE + valid * log.recordSize;
+            if (channel.size() > end) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            log.rows = valid;
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Replaces the file with a new generation holding the given encoded records
+    private static void writeGeneration(Path file, int numFeatures, long generation, ByteBuffer records) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).putInt(numFeatures).putLong(generation).flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            while (records.hasRemaining())
+                channel.write(records);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Appends one labelled row and waits until it is on disk
+    void append(double[] row, double label) throws IOException {
+        if (row.length != numFeatures)
+            throw new IllegalArgumentException("Expected " + numFeatures + " features, got " + row.length);
+        lock.lock();
+        try {
+            if (channel == null)
+                throw new IOException("Row log is closed: " + path);
+            if (pending.remaining() < recordSize) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                pending = larger.put(pending.flip());
+            }
+            int start = pending.position();
+            pending.putDouble(label);
+            for (double v : row)
+                pending.putDouble(v);
+            crc.reset();
+            crc.update(pending.array(), start, recordSize - 4);
+            pending.putInt((int) crc.getValue());
+            long sequence = ++appended;
+
+            while (synced < sequence) {
+                if (failure != null)
+                    throw new IOException("Row log " + path + " failed an earlier write", failure);
+                if (writing) {
+                    committed.awaitUninterruptibly();
+                } else if (channel == null) {
+                    throw new IOException("Row log " + path + " was closed before the row was written");
+                } else {
+                    commitPending();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held. Writes and forces everything appended so far, releasing the lock
+    // meanwhile so other threads can queue the next batch
+    private void commitPending() {
+        ByteBuffer batch = pending;
+        pending = spare;
+        spare = batch;
+        long upTo = appended;
+        int batchRows = batch.position() / recordSize;
+        FileChannel target = channel;
+        writing = true;
+        lock.unlock();
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining())
+                target.write(batch);
+            target.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+        }
+        batch.clear();
+        writing = false;
+        if (error != null) {
+            failure = error;
+        } else {
+            synced = upTo;
+            rows += batchRows;
+            commits++;
+        }
+        committed.signalAll();
+    }
+
+    // Durable rows in the current generation
+    long rows() {
+        lock.lock();
+        try {
+            return rows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of fsyncs so far; appends / commits is the average group size
+    long commits() {
+        lock.lock();
+        try {
+            return commits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Appends the durable rows from index `from` of the current generation to `into` and
+    // returns the index to tail from next time
+    long tail(long from, Dataset into) throws IOException {
+        if (into.numFeatures != numFeatures)
+            throw new IllegalArgumentException("Dataset has " + into.numFeatures + " features, log has " + numFeatures);
+        lock.lock();
+        try {
+            if (channel == null)
+                throw new IOException("Row log is closed: " + path);
+            long end = rows;
+            ByteBuffer buffer = ByteBuffer.allocate(recordSize * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            double[] row = new double[numFeatures];
+            for (long next = from; next < end; ) {
+                int count = (int) Math.min(end - next, 1024);
+                buffer.clear().limit(count * recordSize);
+                long position = HEADER_SIZE + next * recordSize;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0)
+                        throw new IOException("Row log " + path + " ended early");
+                }
+                buffer.flip();
+                for (int r = 0; r < count; r++) {
+                    double label = buffer.getDouble();
+                    for (int j = 0; j < numFeatures; j++)
+                        row[j] = buffer.getDouble();
+                    buffer.getInt(); // checked when the log was opened
+                    into.add(row, label);
+                }
+                next += count;
+            }
+            return Math.max(from, end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes `data` to a DatasetFile at datasetPath and moves the log to its next generation.
+     * `data` must hold the dataset's base rows followed by this log's first `rowsCovered` rows,
+     * as tail(0, ..) leaves it, and must not change until compact returns. The dataset file is
+     * written without holding the lock, so appends carry on meanwhile; only the switch to the new
+     * generation blocks them. Rows beyond rowsCovered are carried into the new generation, whose
+     * tail offsets restart at 0. The dataset file records the generation and row count it
+     * covers. Loaders skip exactly those log rows, so a crash between the two writes neither
+     * loses nor duplicates rows. One compaction runs at a time.
+     */
+    void compact(Dataset data, long rowsCovered, String datasetPath) throws IOException {
+        if (!compacting.compareAndSet(false, true))
+            throw new IllegalStateException("Row log " + path + " is already being compacted");
+        try {
+            long covered;
+            lock.lock();
+            try {
+                if (channel == null)
+                    throw new IOException("Row log is closed: " + path);
+                if (rowsCovered > rows)
+                    throw new IllegalArgumentException("Only " + rows + " rows in the log, not " + rowsCovered);
+                covered = generation;
+            } finally {
+                lock.unlock();
+            }
+            DatasetFile.save(data, covered, rowsCovered, datasetPath);
+
+            lock.lock();
+            try {
+                while (writing)
+                    committed.awaitUninterruptibly();
+                if (channel == null)
+                    throw new IOException("Row log is closed: " + path);
+                // Rows beyond rowsCovered, including those appended during the save, are copied raw
+                // into the next generation, which replaces the log in one atomic move
+                long carried = rows - rowsCovered;
+                ByteBuffer rest = ByteBuffer.allocate((int) (carried * recordSize));
+                while (rest.hasRemaining()) {
+                    if (channel.read(rest, HEADER_SIZE + rowsCovered * recordSize + rest.position()) < 0)
+                        throw new IOException("Row log " + path + " ended early");
+                }
+                writeGeneration(path, numFeatures, generation + 1, rest.flip());
+                channel.close();
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+                generation++;
+                rows = carried;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            while (writing)
+                committed.awaitUninterruptibly();
+            // Rows still queued belong to appenders waiting for their commit
+            if (pending.position() > 0 && failure == null && channel != null)
+                commitPending();
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Counts the leading records whose checksums match; the first bad one marks a torn tail
+    private long countValidRows() throws IOException {
+        long available = (channel.size() - HEADER_SIZE) / recordSize;
+        ByteBuffer buffer = ByteBuffer.allocate(recordSize * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        long valid = 0;
+        while (valid < available) {
+            int count = (int) Math.min(available - valid, 1024);
+            buffer.clear().limit(count * recordSize);
+            long position = HEADER_SIZE + valid * recordSize;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    return valid;
+            }
+            for (int r = 0; r < count; r++, valid++) {
+                int offset = r * recordSize;
+                crc.reset();
+                crc.update(buffer.array(), offset, recordSize - 4);
+                if ((int) crc.getValue() != buffer.getInt(offset + recordSize - 4))
+                    return valid;
+            }
+        }
+        return valid;
+    }
+}
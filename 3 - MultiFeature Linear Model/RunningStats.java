@@ -0,0 +1,155 @@
+import java.util.stream.IntStream;
+
+/**
+ * Running sufficient statistics for the multi-feature linear model: the row count, the mean of
+ * every column and the co-moment matrix sum((x_i - mean_i)(x_j - mean_j)) over the raw features
+ * and the label, updated one row at a time with Welford's method. The normalized model can be
+ * re-solved from these in O(d^3) and its MSE computed in O(d^2), however many rows have been added.
+ * Like FeatureStats, partial statistics of disjoint rows merge exactly (Chan et al.), so of()
+ * accumulates partitions in parallel.
+ */
+public class RunningStats {
+    private static final int MIN_ROWS_PER_PARTITION = 4096;
+
+    final int numFeatures;
+    long count;
+    final double[] means;       // numFeatures + 1 columns, label last
+    final double[] comoments;   // (numFeatures + 1)^2, row-major
+    private final double[] delta;
+
+    RunningStats(int numFeatures) {
+        int n = numFeatures + 1;
+        this.numFeatures = numFeatures;
+        this.means = new double[n];
+        this.comoments = new double[n * n];
+        this.delta = new double[n];
+    }
+
+    static RunningStats of(Dataset data) {
+        return of(data, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Partitions are accumulated on the common ForkJoin pool and merged in order, so the result
+    // only depends on the thread count
+    static RunningStats of(Dataset data, int threads) {
+        int partitions = Math.max(1, Math.min(threads, data.size / MIN_ROWS_PER_PARTITION));
+        RunningStats[] parts = new RunningStats[partitions];
+        IntStream.range(0, partitions).parallel().forEach(p -> {
+            RunningStats part = new RunningStats(data.numFeatures);
+            int start = (int) ((long) data.size * p / partitions);
+            int end = (int) ((long) data.size * (p + 1) / partitions);
+            for (int i = start; i < end; i++)
+                part.add(data.features, i * data.numFeatures, data.labels[i]);
+            parts[p] = part;
+        });
+        for (int p = 1; p < partitions; p++)
+            parts[0].merge(parts[p]);
+        return parts[0];
+    }
+
+    void add(double[] row, double label) {
+        add(row, 0, label);
+    }
+
+    // Adds one row stored at values[offset .. offset + numFeatures)
+    void add(double[] values, int offset, double label) {
+        int n = numFeatures + 1;
+        count++;
+        for (int j = 0; j < n; j++) {
+            double x = j < numFeatures ? values[offset + j] : label;
+            delta[j] = x - means[j];
+            means[j] += delta[j] / count;
+        }
+        // C_ij += (x_i - oldMean_i) * (x_j - newMean_j), only the upper triangle is needed
+        for (int i = 0; i < n; i++) {
+            double d = delta[i];
+            for (int j = i; j < n; j++) {
+                double x = j < numFeatures ? values[offset + j] : label;
+                comoments[i * n + j] += d * (x - means[j]);
+            }
+        }
+    }
+
+    // Folds in the statistics of a disjoint set of rows:
+    // C_ij += C'_ij + (mean'_i - mean_i) * (mean'_j - mean_j) * count * count' / (count + count')
+    void merge(RunningStats other) {
+        if (other.count == 0)
+            return;
+        int n = numFeatures + 1;
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, n);
+            System.arraycopy(other.comoments, 0, comoments, 0, n * n);
+            return;
+        }
+        double total = count + other.count;
+        double weight = (double) count * other.count / total;
+        for (int j = 0; j < n; j++)
+            delta[j] = other.means[j] - means[j];
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++)
+                comoments[i * n + j] += other.comoments[i * n + j] + delta[i] * delta[j] * weight;
+            means[i] += delta[i] * other.count / total;
+        }
+        count += other.count;
+    }
+
+    double[] featureMeans() {
+        double[] out = new double[numFeatures];
+        System.arraycopy(means, 0, out, 0, numFeatures);
+        return out;
+    }
+
+    // Population standard deviations, matching FeatureStats
+    double[] featureStds() {
+        int n = numFeatures + 1;
+        double[] out = new double[numFeatures];
+        for (int j = 0; j < numFeatures; j++)
+            out[j] = Math.sqrt(comoments[j * n + j] / count);
+        return out;
+    }
+
+    /**
+     * Least-squares fit on standardized features (x - mean) / std. Fills weights and returns the
+     * bias, which for centered features is simply the label mean. Constant features get weight 0.
+     */
+    double solve(double[] weights) {
+        int n = numFeatures + 1;
+        double[] stds = featureStds();
+        double[] a = new double[numFeatures * numFeatures];
+        double[] b = new double[numFeatures];
+        for (int i = 0; i < numFeatures; i++) {
+            for (int j = i; j < numFeatures; j++) {
+                double value = stds[i] == 0 || stds[j] == 0 ? (i == j ? 1 : 0)
+                        : comoments[i * n + j] / (stds[i] * stds[j]);
+                a[i * numFeatures + j] = value;
+                a[j * numFeatures + i] = value;
+            }
+            b[i] = stds[i] == 0 ? 0 : comoments[i * n + numFeatures] / stds[i];
+        }
+        double[] theta = NormalEquationSolver.solveRidgeFallback(a, b, numFeatures, numFeatures);
+        System.arraycopy(theta, 0, weights, 0, numFeatures);
+        return means[numFeatures];
+    }
+
+    // MSE over every row seen so far of the standardized model (weights, bias), without a data pass
+    double mse(double[] weights, double bias) {
+        int n = numFeatures + 1;
+        double[] stds = featureStds();
+        double sse = comoments[numFeatures * n + numFeatures];
+        for (int i = 0; i < numFeatures; i++) {
+            if (stds[i] == 0)
+                continue;
+            double wi = weights[i] / stds[i];
+            sse -= 2 * wi * comoments[i * n + numFeatures];
+            for (int j = 0; j < numFeatures; j++) {
+                if (stds[j] == 0)
+                    continue;
+                double c = i <= j ? comoments[i * n + j] : comoments[j * n + i];
+                sse += wi * c * weights[j] / stds[j];
+            }
+        }
+        double offset = bias - means[numFeatures];
+        return sse / count + offset * offset;
+    }
+}
@@ -0,0 +1,492 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless HTTP scoring service for saved models, built on the JDK's HttpServer.
+ *
+ *   POST /predict/{model}  JSON {"features": [..]} or {"rows": [[..], ..]}, answered with
+ *                          {"model": .., "version": .., "predictions": [..]}; or, with
+ *                          Content-Type application/octet-stream, a little-endian i32 row count
+ *                          followed by the row-major f64 features, answered with raw f64 predictions
+ *   GET  /models           registered models and their versions
+ *   GET  /metrics          request count, QPS, p50/p99 latency and prediction cache hit rate
+ *
+ * Requests for the same model are queued and scored together: a batcher thread drains
+ * whatever has arrived (up to maxBatchRows, waiting at most maxWaitMicros for more) and makes one
+ * predictBatch call. Handlers run on virtual threads when the JDK has them, otherwise on a
+ * cached pool. Models can be replaced at any time with register(). Each request is scored by the
+ * snapshot its body was parsed against, so requests queued before a swap finish on the old version.
+ *
+ * With a cache size set, each model also gets a PredictionCache. A request whose rows have all
+ * been scored before by the current version is answered from it without queueing; other requests
+ * go through the batcher and their results are cached.
+ *
+ * Run: java ScoringServer [--port 8080] [--cache entries] [name=path.model ...]
+ * Without model arguments the housing model is trained from src/housing.csv and served as "housing".
+ */
+public class ScoringServer {
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final int maxBatchRows;
+    private final long maxWaitMicros;
+    private final int cacheEntries;     // per model, 0 to disable caching
+    private final Map<String, ModelEndpoint> models = new ConcurrentHashMap<>();
+    private final LatencyRecorder latency = new LatencyRecorder(1 << 16);
+
+    static {
+        // Headers and body go out as separate writes; without TCP_NODELAY Nagle's algorithm holds
+        // the body until the client's delayed ACK, adding ~40ms to every response
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    ScoringServer(int port, int maxBatchRows, long maxWaitMicros) throws IOException {
+        this(port, maxBatchRows, maxWaitMicros, 0);
+    }
+
+    ScoringServer(int port, int maxBatchRows, long maxWaitMicros, int cacheEntries) throws IOException {
+        this.maxBatchRows = maxBatchRows;
+        this.maxWaitMicros = maxWaitMicros;
+        this.cacheEntries = cacheEntries;
+        this.handlers = newHandlerExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/predict/", this::handlePredict);
+        server.createContext("/models", this::handleModels);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        for (ModelEndpoint endpoint : models.values())
+            endpoint.batcher.interrupt();
+        handlers.shutdownNow();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Adds a model, or atomically swaps in a new version of an existing one. A new endpoint is
+    // published with its model already set
+    void register(String name, ModelSnapshot model) {
+        models.compute(name, (n, endpoint) -> {
+            if (endpoint == null) {
+                endpoint = new ModelEndpoint(n, model);
+                endpoint.batcher.start();
+            } else {
+                endpoint.model.set(model);
+            }
+            return endpoint;
+        });
+    }
+
+    private static ExecutorService newHandlerExecutor() {
+        try {
+            // Virtual threads (JDK 21+) make a blocked handler nearly free; looked up reflectively
+            // so the server still builds and runs on older JDKs
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "scoring-handler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "text/plain", "Use POST".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String name = exchange.getRequestURI().getPath().substring("/predict/".length());
+            ModelEndpoint endpoint = models.get(name);
+            if (endpoint == null) {
+                respond(exchange, 404, "text/plain", ("Unknown model " + name).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            ModelSnapshot current = endpoint.model.get();
+            int numFeatures = current.numFeatures();
+            byte[] body = readAll(exchange.getRequestBody());
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            boolean binary = contentType != null && contentType.startsWith("application/octet-stream");
+
+            PendingRequest request = binary ? parseBinary(body, current) : parseJson(body, current);
+            ModelSnapshot scoredBy;
+            if (endpoint.cache != null && allCached(endpoint.cache, current, request)) {
+                scoredBy = current;
+            } else {
+                endpoint.queue.put(request);
+                scoredBy = request.done.get(10, TimeUnit.SECONDS);
+                if (endpoint.cache != null) {
+                    for (int i = 0; i < request.rows; i++)
+                        endpoint.cache.put(scoredBy, request.features, i * numFeatures, request.predictions[i]);
+                }
+            }
+
+            if (binary) {
+                ByteBuffer out = ByteBuffer.allocate(request.rows * 8).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < request.rows; i++)
+                    out.putDouble(request.predictions[i]);
+                respond(exchange, 200, "application/octet-stream", out.array());
+            } else {
+                StringBuilder json = new StringBuilder(32 + request.rows * 20);
+                json.append("{\"model\":\"").append(name).append("\",\"version\":").append(scoredBy.version)
+                        .append(",\"predictions\":[");
+                for (int i = 0; i < request.rows; i++) {
+                    if (i > 0)
+                        json.append(',');
+                    // JSON has no Infinity or NaN
+                    double prediction = request.predictions[i];
+                    if (Double.isFinite(prediction))
+                        json.append(prediction);
+                    else
+                        json.append("null");
+                }
+                json.append("]}");
+                respond(exchange, 200, "application/json", json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            latency.record((System.nanoTime() - start) / 1000);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "text/plain", "Interrupted".getBytes(StandardCharsets.UTF_8));
+        } catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+            respond(exchange, 500, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Fills in every prediction from the cache, stopping at the first row it does not hold
+    private static boolean allCached(PredictionCache cache, ModelSnapshot model, PendingRequest request) {
+        for (int i = 0; i < request.rows; i++) {
+            if (!cache.get(model, request.features, i * model.numFeatures(), request.predictions, i))
+                return false;
+        }
+        return true;
+    }
+
+    private void handleModels(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        for (ModelEndpoint endpoint : models.values()) {
+            ModelSnapshot model = endpoint.model.get();
+            if (json.length() > 1)
+                json.append(',');
+            json.append('"').append(endpoint.name).append("\":{\"version\":").append(model.version)
+                    .append(",\"features\":").append(model.numFeatures())
+                    .append(",\"kind\":\"").append(model.logistic ? "logistic" : "linear").append("\"}");
+        }
+        respond(exchange, 200, "application/json", json.append('}').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        long batches = 0, batchedRows = 0, cacheHits = 0, cacheMisses = 0;
+        for (ModelEndpoint endpoint : models.values()) {
+            batches += endpoint.batches.get();
+            batchedRows += endpoint.batchedRows.get();
+            if (endpoint.cache != null) {
+                cacheHits += endpoint.cache.hits();
+                cacheMisses += endpoint.cache.misses();
+            }
+        }
+        String json = String.format(java.util.Locale.ROOT,
+                "{\"requests\":%d,\"qps\":%.1f,\"p50Micros\":%d,\"p99Micros\":%d,\"batches\":%d,\"avgRowsPerBatch\":%.2f,"
+                        + "\"cacheHits\":%d,\"cacheMisses\":%d,\"cacheHitRate\":%.4f}",
+                latency.count(), latency.recentRate(), latency.percentile(0.50), latency.percentile(0.99),
+                batches, batches == 0 ? 0.0 : (double) batchedRows / batches,
+                cacheHits, cacheMisses, cacheHits + cacheMisses == 0 ? 0.0 : (double) cacheHits / (cacheHits + cacheMisses));
+        respond(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    static PendingRequest parseBinary(byte[] body, ModelSnapshot model) {
+        int numFeatures = model.numFeatures();
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        if (body.length < 4)
+            throw new IllegalArgumentException("Missing row count");
+        int rows = buffer.getInt();
+        if (rows <= 0 || body.length != 4 + (long) rows * numFeatures * 8)
+            throw new IllegalArgumentException("Expected " + rows + " rows of " + numFeatures + " doubles");
+        double[] features = new double[rows * numFeatures];
+        buffer.asDoubleBuffer().get(features);
+        return new PendingRequest(model, features, rows);
+    }
+
+    // Accepts {"features": [..]} or {"rows": [[..], ..]}; every number inside the arrays is a feature value
+    static PendingRequest parseJson(byte[] body, ModelSnapshot model) {
+        int numFeatures = model.numFeatures();
+        String text = new String(body, StandardCharsets.UTF_8);
+        int start = text.indexOf('[');
+        if (start < 0)
+            throw new IllegalArgumentException("Expected \"features\" or \"rows\" array");
+        double[] values = new double[Math.max(numFeatures, 16)];
+        int count = 0;
+        int pos = start;
+        int depth = 0;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '[') {
+                depth++;
+                pos++;
+            } else if (c == ']') {
+                pos++;
+                if (--depth == 0)
+                    break;
+            } else if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) {
+                int end = pos + 1;
+                while (end < text.length() && "0123456789.eE+-".indexOf(text.charAt(end)) >= 0)
+                    end++;
+                if (count == values.length)
+                    values = Arrays.copyOf(values, count * 2);
+                values[count++] = Double.parseDouble(text.substring(pos, end));
+                pos = end;
+            } else {
+                pos++;
+            }
+        }
+        if (count == 0 || count % numFeatures != 0)
+            throw new IllegalArgumentException("Expected rows of " + numFeatures + " features, got " + count + " values");
+        return new PendingRequest(model, Arrays.copyOf(values, count), count / numFeatures);
+    }
+
+    static class PendingRequest {
+        final ModelSnapshot model;      // the snapshot the body was parsed against, which scores it
+        final double[] features;
+        final int rows;
+        final double[] predictions;
+        final CompletableFuture<ModelSnapshot> done = new CompletableFuture<>();
+
+        PendingRequest(ModelSnapshot model, double[] features, int rows) {
+            this.model = model;
+            this.features = features;
+            this.rows = rows;
+            this.predictions = new double[rows];
+        }
+    }
+
+    /**
+     * One served model: the current snapshot, its request queue and the thread that batches it.
+     */
+    private class ModelEndpoint {
+        final String name;
+        final AtomicReference<ModelSnapshot> model;
+        final BlockingQueue<PendingRequest> queue = new ArrayBlockingQueue<>(1 << 14);
+        final Thread batcher;
+        final AtomicLong batches = new AtomicLong();
+        final AtomicLong batchedRows = new AtomicLong();
+        final PredictionCache cache;    // null when caching is off
+
+        // Batcher-thread buffers, grown independently: a model swap can change the feature count
+        private double[] input = new double[0];
+        private double[] output = new double[0];
+
+        ModelEndpoint(String name, ModelSnapshot model) {
+            this.name = name;
+            this.model = new AtomicReference<>(model);
+            this.cache = cacheEntries > 0 ? new PredictionCache(cacheEntries) : null;
+            this.batcher = new Thread(this::runBatches, "scoring-batcher-" + name);
+            this.batcher.setDaemon(true);
+        }
+
+        private void runBatches() {
+            List<PendingRequest> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    int rows = batch.get(0).rows;
+                    long deadline = System.nanoTime() + maxWaitMicros * 1000;
+                    while (rows < maxBatchRows) {
+                        PendingRequest next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        if (next == null)
+                            break;
+                        batch.add(next);
+                        rows += next.rows;
+                    }
+
+                    // A failed batch fails only its own requests; the batcher keeps serving
+                    try {
+                        score(batch);
+                        batches.incrementAndGet();
+                        batchedRows.addAndGet(rows);
+                    } catch (RuntimeException e) {
+                        for (PendingRequest request : batch)
+                            request.done.completeExceptionally(e);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                for (PendingRequest request : batch)
+                    request.done.completeExceptionally(e);
+            }
+        }
+
+        // One predictBatch call per run of consecutive requests parsed against the same snapshot;
+        // there is more than one run only while a swap is in flight
+        private void score(List<PendingRequest> batch) {
+            for (int from = 0, to; from < batch.size(); from = to) {
+                ModelSnapshot snapshot = batch.get(from).model;
+                int rows = 0;
+                for (to = from; to < batch.size() && batch.get(to).model == snapshot; to++)
+                    rows += batch.get(to).rows;
+
+                int numFeatures = snapshot.numFeatures();
+                if (input.length < rows * numFeatures)
+                    input = new double[rows * numFeatures * 2];
+                if (output.length < rows)
+                    output = new double[rows * 2];
+                int offset = 0;
+                for (int r = from; r < to; r++) {
+                    PendingRequest request = batch.get(r);
+                    System.arraycopy(request.features, 0, input, offset * numFeatures, request.rows * numFeatures);
+                    offset += request.rows;
+                }
+                snapshot.predictBatch(input, rows, output);
+                offset = 0;
+                for (int r = from; r < to; r++) {
+                    PendingRequest request = batch.get(r);
+                    System.arraycopy(output, offset, request.predictions, 0, request.rows);
+                    offset += request.rows;
+                    request.done.complete(snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lock-free ring of the most recent request latencies (microseconds) plus completion
+     * timestamps for a recent-QPS estimate. Percentiles are computed on demand from a copy.
+     */
+    static class LatencyRecorder {
+        private final AtomicLongArray micros;
+        private final AtomicLongArray finishedAt;
+        private final AtomicLong total = new AtomicLong();
+        private final int mask;
+
+        LatencyRecorder(int capacity) {
+            micros = new AtomicLongArray(capacity);
+            finishedAt = new AtomicLongArray(capacity);
+            mask = capacity - 1;
+        }
+
+        void record(long latencyMicros) {
+            int slot = (int) (total.getAndIncrement() & mask);
+            micros.set(slot, latencyMicros);
+            finishedAt.set(slot, System.nanoTime());
+        }
+
+        long count() {
+            return total.get();
+        }
+
+        long percentile(double p) {
+            int n = (int) Math.min(total.get(), micros.length());
+            if (n == 0)
+                return 0;
+            long[] sorted = new long[n];
+            for (int i = 0; i < n; i++)
+                sorted[i] = micros.get(i);
+            Arrays.sort(sorted);
+            return sorted[Math.min(n - 1, (int) Math.ceil(p * n) - 1)];
+        }
+
+        // Requests per second over the last 10 seconds, or over the window the ring still covers
+        double recentRate() {
+            int n = (int) Math.min(total.get(), finishedAt.length());
+            long now = System.nanoTime();
+            long window = TimeUnit.SECONDS.toNanos(10);
+            long oldest = now;
+            int recent = 0;
+            for (int i = 0; i < n; i++) {
+                long t = finishedAt.get(i);
+                if (now - t <= window) {
+                    recent++;
+                    oldest = Math.min(oldest, t);
+                }
+            }
+            if (recent == 0)
+                return 0;
+            double seconds = n == finishedAt.length() ? Math.max(now - oldest, 1) / 1e9 : window / 1e9;
+            return recent / seconds;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080, cacheEntries = 0;
+        ScoringServer server = null;
+        List<String[]> modelArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port"))
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--cache"))
+                cacheEntries = Integer.parseInt(args[++i]);
+            else
+                modelArgs.add(args[i].split("=", 2));
+        }
+        server = new ScoringServer(port, 4096, 200, cacheEntries);
+
+        if (modelArgs.isEmpty()) {
+            Dataset data = MultiFeatureLinearRegression.loadData("src/housing.csv");
+            if (data.isEmpty()) {
+                System.err.println("No models given and src/housing.csv could not be loaded");
+                return;
+            }
+            RunningStats stats = RunningStats.of(data);
+            double[] weights = new double[data.numFeatures];
+            double bias = stats.solve(weights);
+            server.register("housing", new ModelSnapshot(1, weights, bias, stats.featureMeans(), stats.featureStds(), data.featureNames));
+        }
+        for (String[] model : modelArgs) {
+            if (model.length != 2) {
+                System.err.println("Models are given as name=path.model");
+                return;
+            }
+            server.register(model[0], ModelIO.load(model[1]));
+        }
+
+        server.start();
+        System.out.println("Scoring server listening on port " + server.port() + " serving " + server.models.keySet());
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multinomial logistic (softmax) regression for many features and classes. Labels hold class
+ * indices 0..numClasses-1. Weights are stored one row per class in a flat array, so the logits of
+ * a block of rows are one LinAlg.gemm.
+ *
+ * Training uses mini-batches from a BatchSource. Each batch is split across a ForkJoinPool; every
+ * partition accumulates its own gradient, and the partials are summed in partition order before
+ * the Optimizer step, so a fixed thread count gives repeatable runs. Softmax and cross-entropy use
+ * log-sum-exp with the largest logit subtracted, so nothing overflows, and the training and
+ * prediction loops allocate nothing. Optional L2 (weight decay) and L1 (subgradient) penalties
+ * apply to the weights, not the biases.
+ */
+public class SoftmaxRegression {
+    private static final int BLOCK = 64;                   // rows per gemm
+    private static final int MIN_ROWS_PER_PARTITION = 256; // smaller batches are not split
+
+    final int numFeatures;
+    final int numClasses;
+    final double[] weights;   // numClasses x numFeatures, row-major
+    final double[] biases;
+    double l1, l2;            // regularization strengths, 0 = off
+    int epochs;               // epochs run so far
+    double loss;              // mean cross-entropy of the last epoch, each batch measured before its update
+    double gradientNorm;      // L2 norm of the last epoch's mean gradient (without the penalties)
+
+    private final Optimizer optimizer;
+    private final int batchSize;
+    private final double[] batchFeatures;
+    private final double[] batchLabels;
+    private final double[] grads;       // weight gradients, then bias gradients
+    private final double[] epochGrads;
+    private final ForkJoinPool pool;    // null when training single-threaded
+    private final BatchTask[] tasks;
+    private final double[] predictBuffer;
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private final EpochStats.Probe probe = new EpochStats.Probe();
+
+    SoftmaxRegression(int numFeatures, int numClasses, Optimizer.Type optimizer, double learningRate, int batchSize) {
+        this(numFeatures, numClasses, optimizer, learningRate, batchSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    SoftmaxRegression(int numFeatures, int numClasses, Optimizer.Type optimizer, double learningRate, int batchSize,
+                      int threads) {
+        if (numClasses < 2)
+            throw new IllegalArgumentException("Need at least two classes");
+        this.numFeatures = numFeatures;
+        this.numClasses = numClasses;
+        this.weights = new double[numClasses * numFeatures];
+        this.biases = new double[numClasses];
+        this.optimizer = new Optimizer(optimizer, learningRate, weights.length + numClasses);
+        this.batchSize = batchSize;
+        this.batchFeatures = new double[batchSize * numFeatures];
+        this.batchLabels = new double[batchSize];
+        this.grads = new double[weights.length + numClasses];
+        this.epochGrads = new double[grads.length];
+        this.predictBuffer = new double[BLOCK * numClasses];
+
+        int partitions = Math.max(1, Math.min(threads, batchSize / MIN_ROWS_PER_PARTITION));
+        this.pool = partitions > 1 ? new ForkJoinPool(partitions) : null;
+        this.tasks = new BatchTask[partitions];
+        for (int p = 0; p < partitions; p++)
+            tasks[p] = new BatchTask();
+    }
+
+    void addListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    // One pass over the source with an update after every batch; returns the epoch's mean cross-entropy
+    double runEpoch(BatchSource source) throws IOException {
+        if (source.numFeatures() != numFeatures)
+            throw new IllegalArgumentException("Source has " + source.numFeatures() + " features, model has " + numFeatures);
+        if (!listeners.isEmpty())
+            probe.start();
+        source.reset();
+        Arrays.fill(epochGrads, 0.0);
+        double lossSum = 0;
+        long rowsThisEpoch = 0;
+
+        int rows;
+        while ((rows = source.nextBatch(batchFeatures, batchLabels, batchSize)) > 0) {
+            lossSum += computeGradients(rows);
+            for (int i = 0; i < grads.length; i++)
+                epochGrads[i] += grads[i];
+            applyUpdate(rows);
+            rowsThisEpoch += rows;
+        }
+
+        double normSquared = 0;
+        for (double g : epochGrads)
+            normSquared += (g / rowsThisEpoch) * (g / rowsThisEpoch);
+        loss = rowsThisEpoch == 0 ? 0 : lossSum / rowsThisEpoch;
+        gradientNorm = rowsThisEpoch == 0 ? 0 : Math.sqrt(normSquared);
+        epochs++;
+        if (!listeners.isEmpty()) {
+            EpochStats stats = probe.finish("softmax", epochs, rowsThisEpoch, loss, gradientNorm);
+            for (TrainingListener listener : listeners)
+                listener.onEpoch(stats);
+        }
+        return loss;
+    }
+
+    // Fills grads with the summed gradient of the batch and returns its summed cross-entropy
+    private double computeGradients(int rows) {
+        int partitions = Math.max(1, Math.min(tasks.length, rows / MIN_ROWS_PER_PARTITION));
+        for (int p = 0; p < partitions; p++) {
+            tasks[p].from = (int) ((long) rows * p / partitions);
+            tasks[p].to = (int) ((long) rows * (p + 1) / partitions);
+        }
+        if (partitions == 1) {
+            tasks[0].compute();
+        } else {
+            for (int p = 0; p < partitions; p++) {
+                tasks[p].reinitialize();
+                pool.execute(tasks[p]);
+            }
+            for (int p = 0; p < partitions; p++)
+                tasks[p].join();
+        }
+
+        System.arraycopy(tasks[0].partial, 0, grads, 0, grads.length);
+        double lossSum = tasks[0].lossSum;
+        for (int p = 1; p < partitions; p++) {
+            LinAlg.axpy(1.0, tasks[p].partial, 0, grads, 0, grads.length);
+            lossSum += tasks[p].lossSum;
+        }
+        return lossSum;
+    }
+
+    private void applyUpdate(int rows) {
+        optimizer.beginStep();
+        double scale = 1.0 / rows;
+        for (int i = 0; i < weights.length; i++) {
+            double w = weights[i];
+            double g = grads[i] * scale + l2 * w;
+            if (l1 != 0 && w != 0)
+                g += w > 0 ? l1 : -l1;
+            weights[i] = w - optimizer.delta(i, g);
+        }
+        for (int c = 0; c < numClasses; c++)
+            biases[c] -= optimizer.delta(weights.length + c, grads[weights.length + c] * scale);
+    }
+
+    /**
+     * Gradient of the cross-entropy over rows [from, to) of the current batch. For one row with
+     * class probabilities p and true class y the gradient is (p - onehot(y)) x for the weights and
+     * p - onehot(y) for the biases.
+     */
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int from, to;
+        final double[] partial = new double[weights.length + numClasses];
+        final double[] logits = new double[BLOCK * numClasses];
+        double lossSum;
+
+        @Override
+        protected void compute() {
+            Arrays.fill(partial, 0.0);
+            int biasOffset = weights.length;
+            double sum = 0;
+            for (int r0 = from; r0 < to; r0 += BLOCK) {
+                int rows = Math.min(BLOCK, to - r0);
+                LinAlg.gemm(batchFeatures, r0 * numFeatures, weights, 0, logits, 0, rows, numClasses, numFeatures);
+                for (int r = 0; r < rows; r++) {
+                    int row = r0 + r;
+                    int z = r * numClasses;
+                    int label = classOf(batchLabels[row]);
+                    // -log p_y = logSumExp(z) - z_y
+                    double trueLogit = logits[z + label] + biases[label];
+                    sum += softmaxInPlace(logits, z, biases, numClasses) - trueLogit;
+                    logits[z + label] -= 1;
+                    for (int c = 0; c < numClasses; c++) {
+                        double g = logits[z + c];
+                        LinAlg.axpy(g, batchFeatures, row * numFeatures, partial, c * numFeatures, numFeatures);
+                        partial[biasOffset + c] += g;
+                    }
+                }
+            }
+            lossSum = sum;
+        }
+
+        private int classOf(double label) {
+            int c = (int) label;
+            if (c != label || c < 0 || c >= numClasses)
+                throw new IllegalArgumentException("Label " + label + " is not a class index below " + numClasses);
+            return c;
+        }
+    }
+
+    /**
+     * Turns logits[off .. off + n) plus biases into probabilities in place and returns
+     * log(sum(exp(logits))). Subtracting the largest logit first keeps every exp() in (0, 1],
+     * so neither the probabilities nor the log-sum-exp can overflow.
+     */
+    private static double softmaxInPlace(double[] logits, int off, double[] biases, int n) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < n; c++) {
+            double v = logits[off + c] + biases[c];
+            logits[off + c] = v;
+            if (v > max)
+                max = v;
+        }
+        double sum = 0;
+        for (int c = 0; c < n; c++) {
+            double e = Math.exp(logits[off + c] - max);
+            logits[off + c] = e;
+            sum += e;
+        }
+        double inv = 1 / sum;
+        for (int c = 0; c < n; c++)
+            logits[off + c] *= inv;
+        return max + Math.log(sum);
+    }
+
+    // Class probabilities of one row, written to out[0 .. numClasses)
+    void predictProbabilities(double[] features, double[] out) {
+        LinAlg.gemv(weights, 0, numClasses, numFeatures, features, 0, out, 0);
+        softmaxInPlace(out, 0, biases, numClasses);
+    }
+
+    int predictClass(double[] features) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < numClasses; c++) {
+            double score = biases[c] + LinAlg.dot(weights, c * numFeatures, features, 0, numFeatures);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Most likely class of each of rows row-major feature vectors. The arg-max of the logits is the
+     * arg-max of the probabilities, so no exponentials are needed. Reuses an internal buffer, so
+     * one model must not be used for batch prediction from several threads at once.
+     */
+    void predictClass(double[] features, int rows, int[] out) {
+        double[] logits = predictBuffer;
+        for (int r0 = 0; r0 < rows; r0 += BLOCK) {
+            int count = Math.min(BLOCK, rows - r0);
+            LinAlg.gemm(features, r0 * numFeatures, weights, 0, logits, 0, count, numClasses, numFeatures);
+            for (int r = 0, z = 0; r < count; r++, z += numClasses) {
+                int best = 0;
+                double bestScore = logits[z] + biases[0];
+                for (int c = 1; c < numClasses; c++) {
+                    double score = logits[z + c] + biases[c];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = c;
+                    }
+                }
+                out[r0 + r] = best;
+            }
+        }
+    }
+
+    double accuracy(Dataset data) {
+        int[] predicted = new int[data.size];
+        predictClass(data.features, data.size, predicted);
+        int correct = 0;
+        for (int i = 0; i < data.size; i++)
+            if (predicted[i] == data.labels[i])
+                correct++;
+        return (double) correct / data.size;
+    }
+
+    void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    // Gaussian clusters, one per class, to exercise training and batch prediction at scale. The
+    // cluster centres come from centerSeed and the rows from sampleSeed, so a train and a test set
+    // share centres but not rows
+    static Dataset syntheticClusters(int rows, int numFeatures, int numClasses, double spread, long centerSeed,
+                                     long sampleSeed) {
+        Random centerRandom = new Random(centerSeed);
+        double[] centers = new double[numClasses * numFeatures];
+        for (int i = 0; i < centers.length; i++)
+            centers[i] = centerRandom.nextGaussian();
+        Random random = new Random(sampleSeed);
+        Dataset data = new Dataset(numFeatures, rows);
+        double[] row = new double[numFeatures];
+        for (int i = 0; i < rows; i++) {
+            int c = random.nextInt(numClasses);
+            for (int j = 0; j < numFeatures; j++)
+                row[j] = centers[c * numFeatures + j] + spread * random.nextGaussian();
+            data.add(row, c);
+        }
+        return data;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int numFeatures = 100, numClasses = 20;
+        Dataset train = syntheticClusters(100_000, numFeatures, numClasses, 4.0, 1, 2);
+        Dataset test = syntheticClusters(20_000, numFeatures, numClasses, 4.0, 1, 3);
+
+        SoftmaxRegression model = new SoftmaxRegression(numFeatures, numClasses, Optimizer.Type.ADAM, 0.002, 512);
+        model.l2 = 1e-4;
+        model.addListener(stats -> System.out.printf("Epoch %d - cross-entropy %.4f, %.0f ms, %,.0f rows/s%n",
+                stats.epoch, stats.loss, stats.nanos / 1e6, stats.samplesPerSecond()));
+        DatasetBatchSource source = new DatasetBatchSource(train, 42);
+        for (int epoch = 0; epoch < 5; epoch++)
+            model.runEpoch(source);
+        model.shutdown();
+        System.out.printf("Accuracy: train %.4f, test %.4f%n", model.accuracy(train), model.accuracy(test));
+
+        int[] predicted = new int[train.size];
+        for (int warmup = 0; warmup < 5; warmup++)
+            model.predictClass(train.features, train.size, predicted);
+        long start = System.nanoTime();
+        int repeats = 10;
+        for (int i = 0; i < repeats; i++)
+            model.predictClass(train.features, train.size, predicted);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("predictClass: %,.0f rows/s (%d features, %d classes, one thread, %s kernels)%n",
+                (double) repeats * train.size / seconds, numFeatures, numClasses, LinAlg.VECTOR ? "Vector API" : "scalar");
+    }
+}
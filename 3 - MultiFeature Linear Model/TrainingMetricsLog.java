@@ -0,0 +1,62 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Appends one line per epoch to a CSV file, or to a JSON-lines file when the path ends in
+ * .json or .jsonl. Lines are flushed every epoch, so the log can be tailed while training runs.
+ */
+public class TrainingMetricsLog implements TrainingListener, Closeable {
+    private static final String CSV_HEADER =
+            "trainer,epoch,epoch_ms,samples,samples_per_sec,loss,grad_norm,allocated_bytes,gc_ms";
+
+    private final Writer out;
+    private final boolean json;
+
+    TrainingMetricsLog(String path) throws IOException {
+        this.json = path.endsWith(".json") || path.endsWith(".jsonl");
+        Path file = Path.of(path);
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh && !json) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+    }
+
+    @Override
+    public void onEpoch(EpochStats s) {
+        String line = json
+                ? String.format(Locale.ROOT,
+                        "{\"trainer\":\"%s\",\"epoch\":%d,\"epochMs\":%.3f,\"samples\":%d,\"samplesPerSec\":%.1f,"
+                                + "\"loss\":%s,\"gradNorm\":%s,\"allocatedBytes\":%d,\"gcMs\":%d}",
+                        s.trainer, s.epoch, s.nanos / 1e6, s.samples, s.samplesPerSecond(),
+                        jsonNumber(s.loss), jsonNumber(s.gradientNorm), s.allocatedBytes, s.gcMillis)
+                : String.format(Locale.ROOT, "%s,%d,%.3f,%d,%.1f,%s,%s,%d,%d",
+                        s.trainer, s.epoch, s.nanos / 1e6, s.samples, s.samplesPerSecond(),
+                        s.loss, s.gradientNorm, s.allocatedBytes, s.gcMillis);
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // JSON has no NaN or Infinity; a diverged run is logged as null
+    private static String jsonNumber(double v) {
+        return Double.isFinite(v) ? Double.toString(v) : "null";
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -6,4 +6,12 @@ public class Input {
         this.value = value;
         this.label = label;
     }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getLabel() {
+        return label;
+    }
 }
@@ -2,16 +2,234 @@ import java.lang.Math;
 import java.util.Random;
 import java.util.ArrayList;
 
+/**
+ * Fully connected feed-forward network (multi-layer perceptron) trained with per-sample SGD.
+ * Every layer's weights, biases, activations and deltas live in flat double[] buffers that are
+ * allocated once in the constructor and reused for every sample, so training allocates nothing.
+ */
 public class NeuralNetwork{
+    enum Activation { LINEAR, TANH, SIGMOID, RELU }
+
     private int hiddenNodes;
     private int outputNodes;
     private ArrayList<Input> trainingData;
-    
-    void main(){
+
+    private final int[] sizes;               // nodes per layer, input layer first
+    private final Activation[] activations;  // activation of each non-input layer
+    private final int[] weightOffset;        // start of layer l's weights (rows = sizes[l], cols = sizes[l-1])
+    private final int[] nodeOffset;          // start of layer l's nodes in values/deltas
+    private final double[] weights;
+    private final double[] biases;           // indexed like values, input slots unused
+    private final double[] values;           // post-activation output of every node
+    private final double[] deltas;           // dLoss/dPreActivation of every node
+    private final double[] batchIn, batchOut; // predictBatch layer buffers, BATCH rows of the widest layer
+    private double learningRate = 0.01;
+    private static final int BATCH = 64;     // rows pushed through predictBatch per gemm
+
+    // Default cosine model: one input, two tanh hidden layers, one linear output
+    public NeuralNetwork(){
+        this(new int[]{1, 12, 12, 1}, new Activation[]{Activation.TANH, Activation.TANH, Activation.LINEAR}, 42);
+    }
+
+    public NeuralNetwork(int[] sizes, Activation[] activations, long seed){
+        if (activations.length != sizes.length - 1)
+            throw new IllegalArgumentException("Need one activation per non-input layer");
+        this.sizes = sizes.clone();
+        this.activations = activations.clone();
+        this.hiddenNodes = sizes.length > 2 ? sizes[1] : 0;
+        this.outputNodes = sizes[sizes.length - 1];
+
+        weightOffset = new int[sizes.length];
+        nodeOffset = new int[sizes.length + 1];
+        int weightCount = 0;
+        for (int l = 0; l < sizes.length; l++) {
+            nodeOffset[l + 1] = nodeOffset[l] + sizes[l];
+            if (l > 0) {
+                weightOffset[l] = weightCount;
+                weightCount += sizes[l] * sizes[l - 1];
+            }
+        }
+        weights = new double[weightCount];
+        biases = new double[nodeOffset[sizes.length]];
+        values = new double[nodeOffset[sizes.length]];
+        deltas = new double[nodeOffset[sizes.length]];
+        int widest = 0;
+        for (int size : sizes) widest = Math.max(widest, size);
+        batchIn = new double[BATCH * widest];
+        batchOut = new double[BATCH * widest];
+
+        // Xavier-style initialization keeps tanh units out of saturation at the start
+        Random random = new Random(seed);
+        for (int l = 1; l < sizes.length; l++) {
+            double scale = Math.sqrt(1.0 / sizes[l - 1]);
+            for (int k = 0; k < sizes[l] * sizes[l - 1]; k++)
+                weights[weightOffset[l] + k] = random.nextGaussian() * scale;
+        }
+    }
+
+    public void setLearningRate(double learningRate){
+        this.learningRate = learningRate;
+    }
+
+    // Runs the network on one sample; the returned array is an internal buffer, valid until the next call
+    public double[] forward(double[] input){
+        System.arraycopy(input, 0, values, 0, sizes[0]);
+        for (int l = 1; l < sizes.length; l++) {
+            int in = nodeOffset[l - 1], out = nodeOffset[l], w = weightOffset[l];
+            int fanIn = sizes[l - 1];
+            Activation activation = activations[l - 1];
+            LinAlg.gemv(weights, w, sizes[l], fanIn, values, in, values, out);
+            for (int n = 0; n < sizes[l]; n++)
+                values[out + n] = activate(activation, values[out + n] + biases[out + n]);
+        }
+        return values;
+    }
+
+    // Runs count samples (row-major in inputs) through the network, BATCH rows at a time with one
+    // gemm per layer, and writes count x outputNodes results to outputs
+    public void predictBatch(double[] inputs, int count, double[] outputs){
+        int last = sizes.length - 1;
+        for (int start = 0; start < count; start += BATCH) {
+            int rows = Math.min(BATCH, count - start);
+            System.arraycopy(inputs, start * sizes[0], batchIn, 0, rows * sizes[0]);
+            double[] cur = batchIn, next = batchOut;
+            for (int l = 1; l <= last; l++) {
+                int width = sizes[l], out = nodeOffset[l];
+                Activation activation = activations[l - 1];
+                LinAlg.gemm(cur, 0, weights, weightOffset[l], next, 0, rows, width, sizes[l - 1]);
+                for (int r = 0; r < rows; r++)
+                    for (int n = 0; n < width; n++)
+                        next[r * width + n] = activate(activation, next[r * width + n] + biases[out + n]);
+                double[] tmp = cur; cur = next; next = tmp;
+            }
+            System.arraycopy(cur, 0, outputs, start * sizes[last], rows * sizes[last]);
+        }
+    }
+
+    public double predict(double x){
+        values[0] = x;
+        return forward(values)[nodeOffset[sizes.length - 1]];
+    }
+
+    // One SGD step on a single sample with squared-error loss; returns that sample's loss
+    public double trainSample(double[] input, double[] target){
+        forward(input);
+        int last = sizes.length - 1;
+        double loss = 0;
+        for (int n = 0; n < sizes[last]; n++) {
+            int i = nodeOffset[last] + n;
+            double error = values[i] - target[n];
+            loss += 0.5 * error * error;
+            deltas[i] = error * derivative(activations[last - 1], values[i]);
+        }
+
+        // Propagate deltas backwards before any weights of the layer are touched
+        for (int l = last; l > 1; l--) {
+            int in = nodeOffset[l - 1], out = nodeOffset[l], w = weightOffset[l];
+            int fanIn = sizes[l - 1];
+            Activation activation = activations[l - 2];
+            LinAlg.gemvTransposed(weights, w, sizes[l], fanIn, deltas, out, deltas, in);
+            for (int k = 0; k < fanIn; k++)
+                deltas[in + k] *= derivative(activation, values[in + k]);
+        }
+
+        for (int l = 1; l <= last; l++) {
+            int in = nodeOffset[l - 1], out = nodeOffset[l], w = weightOffset[l];
+            int fanIn = sizes[l - 1];
+            for (int n = 0; n < sizes[l]; n++, w += fanIn) {
+                double step = learningRate * deltas[out + n];
+                LinAlg.axpy(-step, values, in, weights, w, fanIn);
+                biases[out + n] -= step;
+            }
+        }
+        return loss;
+    }
+
+    // Trains on single-input, single-output samples in a shuffled order each epoch; returns the final mean loss
+    public double train(double[] x, double[] y, int epochs, long seed){
+        int[] order = new int[x.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Random random = new Random(seed);
+        double[] input = new double[1], target = new double[1];
+
+        double meanLoss = 0;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int k = random.nextInt(i + 1);
+                int tmp = order[i]; order[i] = order[k]; order[k] = tmp;
+            }
+            double total = 0;
+            for (int i : order) {
+                input[0] = x[i];
+                target[0] = y[i];
+                total += trainSample(input, target);
+            }
+            meanLoss = total / order.length;
+        }
+        return meanLoss;
+    }
+
+    private static double activate(Activation activation, double z){
+        switch (activation) {
+            case TANH: return Math.tanh(z);
+            case SIGMOID: return 1.0 / (1.0 + Math.exp(-z));
+            case RELU: return z > 0 ? z : 0;
+            default: return z;
+        }
+    }
+
+    // Derivative expressed through the activation's output a, which is what the buffers hold
+    private static double derivative(Activation activation, double a){
+        switch (activation) {
+            case TANH: return 1 - a * a;
+            case SIGMOID: return a * (1 - a);
+            case RELU: return a > 0 ? 1 : 0;
+            default: return 1;
+        }
+    }
+
+    public static void main(String[] args){
         // Lets train a neural network to predict the cosine of the input double
-        trainingData = loadTrainingData();
-        int inputNodes = trainingData.size();
-        
+        NeuralNetwork network = new NeuralNetwork();
+        network.setLearningRate(0.05);
+        network.trainingData = network.loadTrainingData();
+
+        // Inputs are scaled into roughly [-1, 1] so the tanh units see a useful range
+        int m = network.trainingData.size();
+        double[] x = new double[m], y = new double[m];
+        for (int i = 0; i < m; i++) {
+            x[i] = network.trainingData.get(i).getValue() / (4 * Math.PI) - 1;
+            y[i] = network.trainingData.get(i).getLabel();
+        }
+
+        long start = System.nanoTime();
+        int epochs = 4000;
+        double loss = network.train(x, y, epochs, 7);
+        System.out.printf("Cosine set: loss %.5f after %d epochs in %.1f ms%n", loss, epochs, (System.nanoTime() - start) / 1e6);
+        for (double v : new double[]{0, Math.PI / 3, Math.PI, 2}) {
+            System.out.printf("cos(%.3f) = %.3f, predicted %.3f%n", v, Math.cos(v), network.predict(v / (4 * Math.PI) - 1));
+        }
+
+        // Larger synthetic set drawn from one period of the cosine
+        int n = 5000;
+        double[] sx = new double[n], sy = new double[n];
+        Random random = new Random(1);
+        for (int i = 0; i < n; i++) {
+            double v = random.nextDouble() * 2 * Math.PI;
+            sx[i] = v / Math.PI - 1;
+            sy[i] = Math.cos(v);
+        }
+        NeuralNetwork synthetic = new NeuralNetwork(new int[]{1, 16, 1}, new Activation[]{Activation.TANH, Activation.LINEAR}, 3);
+        start = System.nanoTime();
+        loss = synthetic.train(sx, sy, 40, 11);
+        System.out.printf("Synthetic set (%d samples): loss %.5f after 40 epochs in %.1f ms%n", n, loss, (System.nanoTime() - start) / 1e6);
+
+        double[] predictions = new double[n];
+        start = System.nanoTime();
+        synthetic.predictBatch(sx, n, predictions);
+        double error = 0;
+        for (int i = 0; i < n; i++) error = Math.max(error, Math.abs(predictions[i] - sy[i]));
+        System.out.printf("Batch prediction of %d samples in %.2f ms, max error %.4f%n", n, (System.nanoTime() - start) / 1e6, error);
     }
 
     public ArrayList<Input> loadTrainingData(){
@@ -0,0 +1,86 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * What a trainer measured over one epoch, handed to every TrainingListener.
+ * Loss is the mean squared error of the predictions the epoch's gradients were computed from.
+ * Gradient norm is the L2 norm of the mean gradient, including the bias. Allocated bytes cover
+ * the thread that ran the epoch, and are -1 when the JVM cannot count them. GC time is summed
+ * over all collectors and is therefore process-wide.
+ */
+public final class EpochStats {
+    final String trainer;
+    final int epoch;
+    final long nanos;
+    final long samples;
+    final double loss;
+    final double gradientNorm;
+    final long allocatedBytes;
+    final long gcMillis;
+
+    EpochStats(String trainer, int epoch, long nanos, long samples, double loss, double gradientNorm,
+               long allocatedBytes, long gcMillis) {
+        this.trainer = trainer;
+        this.epoch = epoch;
+        this.nanos = nanos;
+        this.samples = samples;
+        this.loss = loss;
+        this.gradientNorm = gradientNorm;
+        this.allocatedBytes = allocatedBytes;
+        this.gcMillis = gcMillis;
+    }
+
+    double samplesPerSecond() {
+        return samples / (Math.max(nanos, 1) / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s epoch %d - loss %.4f, |grad| %.4g, %.2f ms, %,.0f samples/s, %,d bytes, gc %d ms",
+                trainer, epoch, loss, gradientNorm, nanos / 1e6, samplesPerSecond(), allocatedBytes, gcMillis);
+    }
+
+    /**
+     * Snapshot of the clock, the thread's allocation counter and the collectors' total time, taken
+     * when an epoch starts. finish() turns the differences into EpochStats.
+     */
+    static final class Probe {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+        private long startNanos;
+        private long startAllocated;
+        private long startGcMillis;
+
+        void start() {
+            startAllocated = allocatedBytes();
+            startGcMillis = gcMillis();
+            startNanos = System.nanoTime();
+        }
+
+        EpochStats finish(String trainer, int epoch, long samples, double loss, double gradientNorm) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes();
+            return new EpochStats(trainer, epoch, nanos, samples, loss, gradientNorm,
+                    allocated < 0 ? -1 : allocated - startAllocated, gcMillis() - startGcMillis);
+        }
+
+        private static long allocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+
+        private static long gcMillis() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : COLLECTORS)
+                total += Math.max(0, gc.getCollectionTime());
+            return total;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * Dense linear-algebra kernels shared by the models: dot, axpy, gemv and a cache-blocked gemm.
+ * Matrices are row-major slices of flat double[] arrays addressed by offset, matching how
+ * Dataset and NeuralNetwork store their data. Loops are unrolled by four with independent
+ * accumulators so the JIT can keep several multiply-adds in flight and auto-vectorize them.
+ * When the JVM is started with --add-modules jdk.incubator.vector, loops long enough to fill a
+ * few SIMD registers go to VectorKernels instead; results differ from the scalar loops only in
+ * floating-point summation order.
+ */
+public final class LinAlg {
+    private static final int BLOCK = 64;   // gemm tile edge over rows of A and B
+    private static final int K_BLOCK = 256; // gemm tile depth: a 64 x 256 tile of B is 128 KB, held in L2
+    private static final int VECTOR_MIN = 32; // shorter loops stay scalar, reduction overhead would dominate
+    static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private LinAlg() {
+    }
+
+    // sum over k < n of a[aOff + k] * b[bOff + k]
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        if (VECTOR && n >= VECTOR_MIN)
+            return VectorKernels.dot(a, aOff, b, bOff, n);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int k = 0;
+        for (; k + 3 < n; k += 4) {
+            s0 += a[aOff + k] * b[bOff + k];
+            s1 += a[aOff + k + 1] * b[bOff + k + 1];
+            s2 += a[aOff + k + 2] * b[bOff + k + 2];
+            s3 += a[aOff + k + 3] * b[bOff + k + 3];
+        }
+        for (; k < n; k++)
+            s0 += a[aOff + k] * b[bOff + k];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // y[yOff + k] += alpha * x[xOff + k] for k < n
+    static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n) {
+        if (VECTOR && n >= VECTOR_MIN) {
+            VectorKernels.axpy(alpha, x, xOff, y, yOff, n);
+            return;
+        }
+        int k = 0;
+        for (; k + 3 < n; k += 4) {
+            y[yOff + k] += alpha * x[xOff + k];
+            y[yOff + k + 1] += alpha * x[xOff + k + 1];
+            y[yOff + k + 2] += alpha * x[xOff + k + 2];
+            y[yOff + k + 3] += alpha * x[xOff + k + 3];
+        }
+        for (; k < n; k++)
+            y[yOff + k] += alpha * x[xOff + k];
+    }
+
+    // y[yOff + r] = A[r] . x for each of the rows x cols matrix A starting at aOff
+    static void gemv(double[] a, int aOff, int rows, int cols, double[] x, int xOff, double[] y, int yOff) {
+        for (int r = 0; r < rows; r++)
+            y[yOff + r] = dot(a, aOff + r * cols, x, xOff, cols);
+    }
+
+    // y[yOff + c] = sum over r of A[r][c] * x[xOff + r], i.e. A^T x, walking A row by row
+    static void gemvTransposed(double[] a, int aOff, int rows, int cols, double[] x, int xOff, double[] y, int yOff) {
+        for (int c = 0; c < cols; c++)
+            y[yOff + c] = 0;
+        for (int r = 0; r < rows; r++)
+            axpy(x[xOff + r], a, aOff + r * cols, y, yOff, cols);
+    }
+
+    /**
+     * C = A * B^T, with A (m x k), B (n x k) and C (m x n) all row-major. Taking B transposed
+     * makes every output a dot product of two contiguous rows, which is the shape of a dense
+     * layer (weights stored one row per output node) and of batch prediction. The loops are
+     * tiled over all three dimensions: a BLOCK x K_BLOCK tile of B stays in cache while every
+     * row block of A streams past it, each tile adding its partial dot products into C. Inside
+     * a tile outputs are computed two rows by four columns at a time.
+     */
+    static void gemm(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int m, int n, int k) {
+        for (int i = 0; i < m; i++)
+            Arrays.fill(c, cOff + i * n, cOff + i * n + n, 0.0);
+        boolean vector = VECTOR && Math.min(k, K_BLOCK) >= VECTOR_MIN;
+        for (int j0 = 0; j0 < n; j0 += BLOCK) {
+            int jEnd = Math.min(j0 + BLOCK, n);
+            for (int p0 = 0; p0 < k; p0 += K_BLOCK) {
+                int pEnd = Math.min(p0 + K_BLOCK, k);
+                for (int i0 = 0; i0 < m; i0 += BLOCK) {
+                    int iEnd = Math.min(i0 + BLOCK, m);
+                    int i = i0;
+                    for (; i + 1 < iEnd; i += 2) {
+                        int aRow = aOff + i * k;
+                        int cRow = cOff + i * n;
+                        int j = j0;
+                        for (; j + 3 < jEnd; j += 4) {
+                            if (vector)
+                                VectorKernels.kernel2x4(a, aRow, b, bOff + j * k, c, cRow + j, n, k, p0, pEnd);
+                            else
+                                kernel2x4(a, aRow, b, bOff + j * k, c, cRow + j, n, k, p0, pEnd);
+                        }
+                        for (; j < jEnd; j++) {
+                            c[cRow + j] += dot(a, aRow + p0, b, bOff + j * k + p0, pEnd - p0);
+                            c[cRow + n + j] += dot(a, aRow + k + p0, b, bOff + j * k + p0, pEnd - p0);
+                        }
+                    }
+                    for (; i < iEnd; i++) {
+                        int aRow = aOff + i * k;
+                        int cRow = cOff + i * n;
+                        for (int j = j0; j < jEnd; j++)
+                            c[cRow + j] += dot(a, aRow + p0, b, bOff + j * k + p0, pEnd - p0);
+                    }
+                }
+            }
+        }
+    }
+
+    // Two rows of A against four rows of B over columns [p0, pEnd): eight independent accumulators,
+    // and every value loaded is used two or four times, so the loop is bound by multiply-adds
+    // rather than loads
+    private static void kernel2x4(double[] a, int a0, double[] b, int b0, double[] c, int c0, int n, int k,
+                                  int p0, int pEnd) {
+        int a1 = a0 + k;
+        int b1 = b0 + k, b2 = b1 + k, b3 = b2 + k;
+        double s00 = 0, s01 = 0, s02 = 0, s03 = 0;
+        double s10 = 0, s11 = 0, s12 = 0, s13 = 0;
+        for (int p = p0; p < pEnd; p++) {
+            double x0 = a[a0 + p], x1 = a[a1 + p];
+            double y0 = b[b0 + p], y1 = b[b1 + p], y2 = b[b2 + p], y3 = b[b3 + p];
+            s00 += x0 * y0;
+            s01 += x0 * y1;
+            s02 += x0 * y2;
+            s03 += x0 * y3;
+            s10 += x1 * y0;
+            s11 += x1 * y1;
+            s12 += x1 * y2;
+            s13 += x1 * y3;
+        }
+        c[c0] += s00;
+        c[c0 + 1] += s01;
+        c[c0 + 2] += s02;
+        c[c0 + 3] += s03;
+        c[c0 + n] += s10;
+        c[c0 + n + 1] += s11;
+        c[c0 + n + 2] += s12;
+        c[c0 + n + 3] += s13;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format for ModelSnapshot, so a trained model can be reused without the training data.
+ *
+ * Layout (little-endian):
+ *   magic "JAVM" | format version u16 | kind u8 (0 linear, 1 logistic) | reserved u8 | model version i64 | feature count i32
+ *   feature names (u16 length + UTF-8 bytes each, length 0 when unknown)
+ *   means, stds, weights (feature count doubles each) | bias f64 | CRC32 of everything before it (i32)
+ *
+ * Files are written to a temporary sibling and moved into place, so readers never see a partial
+ * model, and are read back through a read-only memory mapping.
+ *
+ * The single-feature models keep their own smaller parameter files, written and read here too:
+ *   magic (per model) | format version u16 | theta0 f64 | theta1 f64 | CRC32 (i32)
+ */
+public class ModelIO {
+    private static final int MAGIC = 0x4D56414A; // "JAVM" read little-endian
+    private static final short FORMAT_VERSION = 1;
+    private static final byte KIND_LINEAR = 0;
+    private static final byte KIND_LOGISTIC = 1;
+    private static final short PARAMETERS_FORMAT_VERSION = 1;
+    private static final int PARAMETERS_FILE_SIZE = 4 + 2 + 8 + 8 + 4;
+
+    static void save(ModelSnapshot model, String path) throws IOException {
+        int numFeatures = model.numFeatures();
+        String[] names = model.featureNames();
+        byte[][] encodedNames = new byte[numFeatures][];
+        int namesSize = 0;
+        for (int j = 0; j < numFeatures; j++) {
+            encodedNames[j] = names == null ? new byte[0] : names[j].getBytes(StandardCharsets.UTF_8);
+            namesSize += 2 + encodedNames[j].length;
+        }
+
+        int size = 4 + 2 + 1 + 1 + 8 + 4 + namesSize + (3 * numFeatures + 1) * 8 + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(FORMAT_VERSION).put(model.logistic ? KIND_LOGISTIC : KIND_LINEAR).put((byte) 0);
+        buffer.putLong(model.version).putInt(numFeatures);
+        for (byte[] name : encodedNames)
+            buffer.putShort((short) name.length).put(name);
+        for (double v : model.means())
+            buffer.putDouble(v);
+        for (double v : model.stds())
+            buffer.putDouble(v);
+        for (double v : model.weights())
+            buffer.putDouble(v);
+        buffer.putDouble(model.bias);
+
+        writeChecksummed(path, buffer);
+    }
+
+    // theta0 and theta1 of a single-feature model, under that model's magic
+    static void saveParameters(String path, int magic, double theta0, double theta1) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PARAMETERS_FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(magic).putShort(PARAMETERS_FORMAT_VERSION).putDouble(theta0).putDouble(theta1);
+        writeChecksummed(path, buffer);
+    }
+
+    // {theta0, theta1} from a file written by saveParameters with the same magic
+    static double[] loadParameters(String path, int magic) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            if (channel.size() != PARAMETERS_FILE_SIZE)
+                throw new IOException("Not a model file: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, PARAMETERS_FILE_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, PARAMETERS_FILE_SIZE - 4));
+            if (buffer.getInt() != magic || buffer.getShort() != PARAMETERS_FORMAT_VERSION
+                    || (int) crc.getValue() != buffer.getInt(PARAMETERS_FILE_SIZE - 4))
+                throw new IOException("Corrupt or unsupported model file: " + path);
+            return new double[] {buffer.getDouble(), buffer.getDouble()};
+        }
+    }
+
+    // Appends the CRC32 of the buffer's contents so far and writes the whole buffer to path
+    private static void writeChecksummed(String path, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path target = Path.of(path);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ModelSnapshot load(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 24)
+                throw new IOException("Not a model file: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 4));
+            if ((int) crc.getValue() != buffer.getInt((int) size - 4))
+                throw new IOException("Checksum mismatch in model file: " + path);
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a model file: " + path);
+            short formatVersion = buffer.getShort();
+            if (formatVersion != FORMAT_VERSION)
+                throw new IOException("Unsupported model format version " + formatVersion + " in " + path);
+            byte kind = buffer.get();
+            if (kind != KIND_LINEAR && kind != KIND_LOGISTIC)
+                throw new IOException("Unsupported model kind " + kind + " in " + path);
+            buffer.get(); // reserved
+
+            long version = buffer.getLong();
+            int numFeatures = buffer.getInt();
+            String[] names = new String[numFeatures];
+            boolean named = false;
+            for (int j = 0; j < numFeatures; j++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                names[j] = new String(name, StandardCharsets.UTF_8);
+                named |= name.length > 0;
+            }
+            double[] means = readDoubles(buffer, numFeatures);
+            double[] stds = readDoubles(buffer, numFeatures);
+            double[] weights = readDoubles(buffer, numFeatures);
+            double bias = buffer.getDouble();
+            return new ModelSnapshot(version, weights, bias, means, stds, named ? names : null, kind == KIND_LOGISTIC);
+        }
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+}
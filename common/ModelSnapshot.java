@@ -0,0 +1,103 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable trained state of the multi-feature model: weights and bias over standardized
+ * features together with the normalization they were trained with. The normalization is
+ * folded into a second set of weights over raw features, so prediction is a single dot
+ * product with no temporary arrays. Instances never change after construction, so any number
+ * of threads can score against one while a retrain builds its replacement; publish new versions
+ * through an AtomicReference. A logistic snapshot passes the linear score through the sigmoid
+ * and predicts a probability.
+ *
+ * Besides the version it is saved with, every snapshot gets an id unique within the process and
+ * increasing in construction order. Version numbers repeat (every export and every load of an
+ * older file can carry version 1), so anything caching per model keys on the id instead.
+ */
+public final class ModelSnapshot {
+    private static final AtomicLong IDS = new AtomicLong();
+
+    final long id = IDS.incrementAndGet();
+    final long version;
+    final double bias;
+    final boolean logistic;
+    private final String[] featureNames; // may be null when the schema is unknown
+    private final double[] weights;     // over standardized features
+    private final double[] means;
+    private final double[] stds;
+    private final double[] rawWeights;  // over raw features, normalization folded in
+    private final double rawBias;
+
+    ModelSnapshot(long version, double[] weights, double bias, double[] means, double[] stds) {
+        this(version, weights, bias, means, stds, null);
+    }
+
+    ModelSnapshot(long version, double[] weights, double bias, double[] means, double[] stds, String[] featureNames) {
+        this(version, weights, bias, means, stds, featureNames, false);
+    }
+
+    ModelSnapshot(long version, double[] weights, double bias, double[] means, double[] stds, String[] featureNames,
+                  boolean logistic) {
+        this.version = version;
+        this.logistic = logistic;
+        this.featureNames = featureNames == null ? null : featureNames.clone();
+        this.bias = bias;
+        this.weights = weights.clone();
+        this.means = means.clone();
+        this.stds = stds.clone();
+
+        // w * (x - mean) / std = (w / std) * x - w * mean / std; constant features (std 0) are
+        // left unscaled, exactly as FeatureStats and the trainers leave them
+        rawWeights = new double[weights.length];
+        double b = bias;
+        for (int j = 0; j < weights.length; j++) {
+            if (stds[j] != 0) {
+                rawWeights[j] = weights[j] / stds[j];
+                b -= rawWeights[j] * means[j];
+            } else {
+                rawWeights[j] = weights[j];
+            }
+        }
+        rawBias = b;
+    }
+
+    int numFeatures() {
+        return rawWeights.length;
+    }
+
+    // Prediction for one row of raw (unnormalized) features
+    double predict(double[] features) {
+        return link(rawBias + LinAlg.dot(rawWeights, 0, features, 0, rawWeights.length));
+    }
+
+    void predictBatch(double[][] rows, double[] out) {
+        for (int i = 0; i < rows.length; i++)
+            out[i] = link(rawBias + LinAlg.dot(rawWeights, 0, rows[i], 0, rawWeights.length));
+    }
+
+    // rows raw feature vectors stored row-major in flat
+    void predictBatch(double[] flat, int rows, double[] out) {
+        LinAlg.gemv(flat, 0, rows, rawWeights.length, rawWeights, 0, out, 0);
+        for (int i = 0; i < rows; i++)
+            out[i] = link(out[i] + rawBias);
+    }
+
+    private double link(double score) {
+        return logistic ? 1.0 / (1.0 + Math.exp(-score)) : score;
+    }
+
+    double[] weights() {
+        return weights.clone();
+    }
+
+    double[] means() {
+        return means.clone();
+    }
+
+    double[] stds() {
+        return stds.clone();
+    }
+
+    String[] featureNames() {
+        return featureNames == null ? null : featureNames.clone();
+    }
+}
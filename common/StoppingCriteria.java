@@ -0,0 +1,138 @@
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decides when a gradient-descent trainer should stop. Every criterion is off until it is
+ * configured, apart from the epoch cap:
+ *   lossTolerance      relative change of the training loss between two epochs
+ *   gradientTolerance  L2 norm of the mean gradient
+ *   validation         loss of the model on held-out data. Training stops after `patience`
+ *                      epochs without a new best validation loss, and the trainer then returns to
+ *                      the best weights seen.
+ *   timeBudget         wall-clock milliseconds since start()
+ *   cancelWhen         external cancellation, e.g. a SwingWorker's isCancelled
+ * Checks run once per epoch, in the order of the Reason constants. Shared by the single-feature
+ * models, which pass their slope as a one-element weight vector, and the multi-feature trainers.
+ */
+public class StoppingCriteria {
+    public enum Reason { CANCELLED, GRADIENT_CONVERGED, LOSS_CONVERGED, VALIDATION_PATIENCE, TIME_BUDGET, MAX_EPOCHS }
+
+    private int maxEpochs = 1000;
+    private double lossTolerance;
+    private double gradientTolerance;
+    private long timeBudgetNanos;
+    private BooleanSupplier cancelled;
+    private Validation validation;
+    private int patience;
+    private double[] shift, scale;      // the trainer's on-read standardization, if any
+    private double[] rawWeights;        // scratch for folding the standardization into validation weights
+
+    // Per-run state, reset by start()
+    private long startNanos;
+    private double previousLoss;
+    private int epochsSinceBest;
+    double bestValidationLoss;
+    double[] bestWeights;
+    double bestBias;
+    double validationLoss = Double.NaN; // of the last checked epoch
+
+    // Loss of a candidate model on held-out data; weights and bias are over raw features
+    public interface Validation {
+        double loss(double[] weights, double bias);
+    }
+
+    StoppingCriteria maxEpochs(int epochs) {
+        this.maxEpochs = epochs;
+        return this;
+    }
+
+    StoppingCriteria lossTolerance(double relativeChange) {
+        this.lossTolerance = relativeChange;
+        return this;
+    }
+
+    StoppingCriteria gradientTolerance(double norm) {
+        this.gradientTolerance = norm;
+        return this;
+    }
+
+    StoppingCriteria timeBudget(long millis) {
+        this.timeBudgetNanos = millis * 1_000_000;
+        return this;
+    }
+
+    StoppingCriteria cancelWhen(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+        return this;
+    }
+
+    // null turns validation off again
+    StoppingCriteria validation(Validation loss, int patience) {
+        if (loss != null && patience < 1)
+            throw new IllegalArgumentException("Patience must be at least 1, got " + patience);
+        this.validation = loss;
+        this.patience = patience;
+        return this;
+    }
+
+    // Whether check() looks at the training loss; trainers may skip computing it otherwise
+    boolean usesLoss() {
+        return lossTolerance > 0;
+    }
+
+    // Set by trainers that standardize on read, so validation rows are scaled like training rows
+    void setScaling(double[] shift, double[] scale) {
+        this.shift = shift;
+        this.scale = scale;
+        rawWeights = scale == null ? null : new double[scale.length];
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        previousLoss = Double.NaN;
+        epochsSinceBest = 0;
+        bestValidationLoss = Double.POSITIVE_INFINITY;
+        bestWeights = null;
+        validationLoss = Double.NaN;
+    }
+
+    // Called after each epoch with its training loss and gradient norm and the updated parameters;
+    // returns why training should stop, or null to keep going
+    Reason check(int epoch, double loss, double gradientNorm, double[] weights, double bias) {
+        if (cancelled != null && cancelled.getAsBoolean())
+            return Reason.CANCELLED;
+        if (gradientTolerance > 0 && gradientNorm <= gradientTolerance)
+            return Reason.GRADIENT_CONVERGED;
+        if (lossTolerance > 0 && !Double.isNaN(previousLoss)
+                && Math.abs(previousLoss - loss) <= lossTolerance * Math.abs(previousLoss))
+            return Reason.LOSS_CONVERGED;
+        previousLoss = loss;
+
+        if (validation != null) {
+            validationLoss = validationLoss(weights, bias);
+            if (validationLoss < bestValidationLoss) {
+                bestValidationLoss = validationLoss;
+                if (bestWeights == null)
+                    bestWeights = new double[weights.length];
+                System.arraycopy(weights, 0, bestWeights, 0, weights.length);
+                bestBias = bias;
+                epochsSinceBest = 0;
+            } else if (++epochsSinceBest >= patience) {
+                return Reason.VALIDATION_PATIENCE;
+            }
+        }
+        if (timeBudgetNanos > 0 && System.nanoTime() - startNanos >= timeBudgetNanos)
+            return Reason.TIME_BUDGET;
+        return epoch >= maxEpochs ? Reason.MAX_EPOCHS : null;
+    }
+
+    // Validation loss of trained weights, folded back to raw features when the trainer scales on read
+    private double validationLoss(double[] weights, double bias) {
+        if (scale == null)
+            return validation.loss(weights, bias);
+        for (int j = 0; j < weights.length; j++) {
+            rawWeights[j] = weights[j] * scale[j];
+            bias -= rawWeights[j] * shift[j];
+        }
+        return validation.loss(rawWeights, bias);
+    }
+}
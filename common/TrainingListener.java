@@ -0,0 +1,7 @@
+/**
+ * Receives the statistics of every epoch a trainer runs. Called on the training thread right
+ * after the weight update, so implementations should hand off anything slow.
+ */
+public interface TrainingListener {
+    void onEpoch(EpochStats stats);
+}
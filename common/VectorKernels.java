@@ -0,0 +1,93 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the LinAlg inner loops, one SIMD register of doubles per step with the
+ * remainder finished in scalar code. Only LinAlg calls these, and only once it has checked that
+ * jdk.incubator.vector is in the boot layer (java --add-modules jdk.incubator.vector); without the
+ * module this class is never loaded and LinAlg's scalar loops run instead.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        DoubleVector s0 = DoubleVector.zero(SPECIES);
+        DoubleVector s1 = DoubleVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int k = 0;
+        for (; k + 2 * step <= n; k += 2 * step) {
+            s0 = DoubleVector.fromArray(SPECIES, a, aOff + k).fma(DoubleVector.fromArray(SPECIES, b, bOff + k), s0);
+            s1 = DoubleVector.fromArray(SPECIES, a, aOff + k + step)
+                    .fma(DoubleVector.fromArray(SPECIES, b, bOff + k + step), s1);
+        }
+        for (; k + step <= n; k += step)
+            s0 = DoubleVector.fromArray(SPECIES, a, aOff + k).fma(DoubleVector.fromArray(SPECIES, b, bOff + k), s0);
+        double s = s0.add(s1).reduceLanes(VectorOperators.ADD);
+        for (; k < n; k++)
+            s += a[aOff + k] * b[bOff + k];
+        return s;
+    }
+
+    static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n) {
+        DoubleVector va = DoubleVector.broadcast(SPECIES, alpha);
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n); k < bound; k += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, x, xOff + k).fma(va, DoubleVector.fromArray(SPECIES, y, yOff + k))
+                    .intoArray(y, yOff + k);
+        for (; k < n; k++)
+            y[yOff + k] += alpha * x[xOff + k];
+    }
+
+    // LinAlg.kernel2x4 with the p loop vectorized: eight vector accumulators, reduced once at the end
+    static void kernel2x4(double[] a, int a0, double[] b, int b0, double[] c, int c0, int n, int k, int p0, int pEnd) {
+        int a1 = a0 + k;
+        int b1 = b0 + k, b2 = b1 + k, b3 = b2 + k;
+        DoubleVector s00 = DoubleVector.zero(SPECIES), s01 = s00, s02 = s00, s03 = s00;
+        DoubleVector s10 = s00, s11 = s00, s12 = s00, s13 = s00;
+        int p = p0;
+        for (int bound = p0 + SPECIES.loopBound(pEnd - p0); p < bound; p += SPECIES.length()) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, a0 + p);
+            DoubleVector x1 = DoubleVector.fromArray(SPECIES, a, a1 + p);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, b, b0 + p);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, b, b1 + p);
+            DoubleVector y2 = DoubleVector.fromArray(SPECIES, b, b2 + p);
+            DoubleVector y3 = DoubleVector.fromArray(SPECIES, b, b3 + p);
+            s00 = x0.fma(y0, s00);
+            s01 = x0.fma(y1, s01);
+            s02 = x0.fma(y2, s02);
+            s03 = x0.fma(y3, s03);
+            s10 = x1.fma(y0, s10);
+            s11 = x1.fma(y1, s11);
+            s12 = x1.fma(y2, s12);
+            s13 = x1.fma(y3, s13);
+        }
+        double t00 = s00.reduceLanes(VectorOperators.ADD), t01 = s01.reduceLanes(VectorOperators.ADD);
+        double t02 = s02.reduceLanes(VectorOperators.ADD), t03 = s03.reduceLanes(VectorOperators.ADD);
+        double t10 = s10.reduceLanes(VectorOperators.ADD), t11 = s11.reduceLanes(VectorOperators.ADD);
+        double t12 = s12.reduceLanes(VectorOperators.ADD), t13 = s13.reduceLanes(VectorOperators.ADD);
+        for (; p < pEnd; p++) {
+            double x0 = a[a0 + p], x1 = a[a1 + p];
+            double y0 = b[b0 + p], y1 = b[b1 + p], y2 = b[b2 + p], y3 = b[b3 + p];
+            t00 += x0 * y0;
+            t01 += x0 * y1;
+            t02 += x0 * y2;
+            t03 += x0 * y3;
+            t10 += x1 * y0;
+            t11 += x1 * y1;
+            t12 += x1 * y2;
+            t13 += x1 * y3;
+        }
+        c[c0] += t00;
+        c[c0 + 1] += t01;
+        c[c0 + 2] += t02;
+        c[c0 + 3] += t03;
+        c[c0 + n] += t10;
+        c[c0 + n + 1] += t11;
+        c[c0 + n + 2] += t12;
+        c[c0 + n + 3] += t13;
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grid or random search over learning rates for LinearRegression, LogisticRegression and the
+ * multi-feature gradient-descent model. Every configuration is scored by k-fold
+ * cross-validation: fold models train on all rows except one contiguous range and are scored on
+ * that range, so no fold copies the shared, read-only data. This assumes the rows are not sorted.
+ *
+ * Runs are pruned by successive halving. All configurations first train for --min-epochs. The best
+ * 1/eta by mean fold loss go on to eta times as many epochs, and so on up to --max-epochs. Each
+ * round's (configuration, fold) trainings run on a fixed pool of --threads workers, and each
+ * multi-feature trainer uses a single thread. Prints a table ranked the way the halving ranked the
+ * runs: survivors first, then by the epochs a run reached before it was pruned, and within equal
+ * epochs by cross-validated loss. Losses after different epoch counts are not comparable, so a
+ * run pruned early never ranks above one that outlasted it.
+ *
+ *   java -cp tools/target/benchmarks.jar HyperparameterSearch --model linear|logistic|multi [--search grid|random]
+ *        [--trials 12] [--lr 1e-4:1] [--folds 5] [--min-epochs 50] [--max-epochs 1000] [--eta 3]
+ *        [--threads N] [--rows 20000] [--data file.csv] [--seed 1]
+ *
+ * --data applies to the multi-feature model; without it a synthetic 4-feature set is generated.
+ */
+public class HyperparameterSearch {
+
+    /** One cross-validation fold of one configuration; keeps its parameters between rounds. */
+    interface FoldModel {
+        void train(int epochs);
+        double validationLoss();
+    }
+
+    interface ModelFactory {
+        FoldModel create(double learningRate, int holdoutFrom, int holdoutTo);
+    }
+
+    static class Run {
+        final double learningRate;
+        final FoldModel[] folds;
+        final double[] foldLoss;
+        int epochs;
+        long nanos;          // summed training and scoring time of all folds
+        int prunedAt;        // epochs reached when pruned, 0 if it survived to the end
+        double meanLoss = Double.POSITIVE_INFINITY;
+        double stdLoss;
+
+        Run(double learningRate, int folds) {
+            this.learningRate = learningRate;
+            this.folds = new FoldModel[folds];
+            this.foldLoss = new double[folds];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String model = "linear", search = "grid", data = null;
+        int trials = 12, folds = 5, minEpochs = 50, maxEpochs = 1000, eta = 3, rows = 20_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double lrLow = 1e-4, lrHigh = 1;
+        long seed = 1;
+        if (args.length % 2 != 0)
+            throw new IllegalArgumentException("Options take a value each; " + args[args.length - 1] + " has none");
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--model": model = value; break;
+                case "--search": search = value; break;
+                case "--trials": trials = Integer.parseInt(value); break;
+                case "--folds": folds = Integer.parseInt(value); break;
+                case "--min-epochs": minEpochs = Integer.parseInt(value); break;
+                case "--max-epochs": maxEpochs = Integer.parseInt(value); break;
+                case "--eta": eta = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--data": data = value; break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--lr":
+                    String[] range = value.split(":");
+                    if (range.length != 2)
+                        throw new IllegalArgumentException("--lr takes low:high, e.g. 1e-4:1, got " + value);
+                    lrLow = Double.parseDouble(range[0]);
+                    lrHigh = Double.parseDouble(range[1]);
+                    if (!(lrLow > 0 && lrHigh >= lrLow))
+                        throw new IllegalArgumentException("--lr needs 0 < low <= high, got " + value);
+                    break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        int[] size = new int[1];
+        ModelFactory factory;
+        switch (model) {
+            case "linear": factory = linearFactory(rows, seed, size); break;
+            case "logistic": factory = logisticFactory(rows, seed, size); break;
+            case "multi": factory = multiFeatureFactory(data, rows, seed, size); break;
+            default: throw new IllegalArgumentException("Unknown model " + model);
+        }
+        if (size[0] < folds)
+            throw new IllegalArgumentException("Need at least " + folds + " rows for " + folds + " folds");
+
+        double[] learningRates = search.equals("random")
+                ? randomLogUniform(trials, lrLow, lrHigh, seed)
+                : logGrid(trials, lrLow, lrHigh);
+        List<Run> runs = new ArrayList<>();
+        for (double lr : learningRates) {
+            Run run = new Run(lr, folds);
+            for (int f = 0; f < folds; f++)
+                run.folds[f] = factory.create(lr, (int) ((long) size[0] * f / folds), (int) ((long) size[0] * (f + 1) / folds));
+            runs.add(run);
+        }
+
+        System.out.printf("%s search over %d learning rates in [%g, %g] for the %s model: %,d rows, %d folds, %d threads%n",
+                search, runs.size(), lrLow, lrHigh, model, size[0], folds, threads);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            successiveHalving(runs, pool, minEpochs, maxEpochs, eta);
+        } finally {
+            pool.shutdown();
+        }
+        printTable(runs, (System.nanoTime() - start) / 1e6);
+    }
+
+    static void successiveHalving(List<Run> runs, ExecutorService pool, int minEpochs, int maxEpochs, int eta)
+            throws InterruptedException, ExecutionException {
+        List<Run> alive = new ArrayList<>(runs);
+        int budget = Math.min(minEpochs, maxEpochs);
+        while (true) {
+            advance(alive, pool, budget);
+            alive.sort(Comparator.comparingDouble(run -> run.meanLoss));
+            System.out.printf("  %5d epochs: %2d runs, best loss %.6g (lr %.4g)%n",
+                    budget, alive.size(), alive.get(0).meanLoss, alive.get(0).learningRate);
+            if (budget >= maxEpochs || alive.size() == 1)
+                return;
+            int keep = Math.max(1, (alive.size() + eta - 1) / eta);
+            for (Run run : alive.subList(keep, alive.size()))
+                run.prunedAt = budget;
+            alive = new ArrayList<>(alive.subList(0, keep));
+            budget = (int) Math.min((long) budget * eta, maxEpochs);
+        }
+    }
+
+    // Trains every fold of every run up to the given epoch count in parallel, then scores them
+    private static void advance(List<Run> runs, ExecutorService pool, int epochs)
+            throws InterruptedException, ExecutionException {
+        List<Future<Long>> pending = new ArrayList<>();
+        for (Run run : runs) {
+            int extra = epochs - run.epochs;
+            for (int f = 0; f < run.folds.length; f++) {
+                FoldModel fold = run.folds[f];
+                int index = f;
+                pending.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    fold.train(extra);
+                    double loss = fold.validationLoss();
+                    run.foldLoss[index] = Double.isFinite(loss) ? loss : Double.POSITIVE_INFINITY;
+                    return System.nanoTime() - start;
+                }));
+            }
+        }
+        int next = 0;
+        for (Run run : runs) {
+            for (int f = 0; f < run.folds.length; f++)
+                run.nanos += pending.get(next++).get();
+            run.epochs = epochs;
+            double mean = 0;
+            for (double loss : run.foldLoss)
+                mean += loss / run.foldLoss.length;
+            double variance = 0;
+            for (double loss : run.foldLoss)
+                variance += (loss - mean) * (loss - mean) / run.foldLoss.length;
+            run.meanLoss = Double.isNaN(mean) ? Double.POSITIVE_INFINITY : mean;
+            run.stdLoss = Math.sqrt(variance);
+        }
+    }
+
+    static void printTable(List<Run> runs, double totalMillis) {
+        List<Run> ranked = new ArrayList<>(runs);
+        // Survivors first, then by how far a run got before pruning, then by loss
+        ranked.sort(Comparator.<Run>comparingInt(run -> run.prunedAt == 0 ? 0 : 1)
+                .thenComparingInt(run -> -run.epochs)
+                .thenComparingDouble(run -> run.meanLoss));
+        System.out.printf("%n%4s  %-12s %7s %-14s %-14s %10s  %s%n", "rank", "learningRate", "epochs", "cv loss", "+/- (folds)", "wall ms", "status");
+        int rank = 1;
+        for (Run run : ranked) {
+            System.out.printf(Locale.ROOT, "%4d  %-12.5g %7d %-14.6g %-14.4g %10.1f  %s%n", rank++, run.learningRate,
+                    run.epochs, run.meanLoss, run.stdLoss, run.nanos / 1e6,
+                    run.prunedAt == 0 ? "complete" : "pruned at " + run.prunedAt);
+        }
+        System.out.printf("Total wall time %.1f ms%n", totalMillis);
+    }
+
+    static double[] logGrid(int count, double low, double high) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++)
+            values[i] = count == 1 ? low : low * Math.pow(high / low, (double) i / (count - 1));
+        return values;
+    }
+
+    static double[] randomLogUniform(int count, double low, double high, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++)
+            values[i] = low * Math.pow(high / low, random.nextDouble());
+        return values;
+    }
+
+    // y = 2x + 1 + noise over x in [0, 10)
+    static ModelFactory linearFactory(int rows, long seed, int[] size) {
+        Random random = new Random(seed);
+        double[] x = new double[rows], y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = random.nextDouble() * 10;
+            y[i] = 2 * x[i] + 1 + random.nextGaussian();
+        }
+        size[0] = rows;
+        return (lr, from, to) -> {
+            LinearRegression model = new LinearRegression();
+            model.setLearningRate(lr);
+            return new FoldModel() {
+                public void train(int epochs) {
+                    model.setIterations(epochs);
+                    model.train(x, y, from, to);
+                }
+
+                public double validationLoss() {
+                    return model.mse(x, y, from, to);
+                }
+            };
+        };
+    }
+
+    // Class 1 becomes likelier as x grows past 5
+    static ModelFactory logisticFactory(int rows, long seed, int[] size) {
+        Random random = new Random(seed);
+        double[] x = new double[rows];
+        int[] y = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = random.nextDouble() * 10;
+            y[i] = random.nextDouble() < 1 / (1 + Math.exp(-1.5 * (x[i] - 5))) ? 1 : 0;
+        }
+        size[0] = rows;
+        return (lr, from, to) -> {
+            LogisticRegression model = new LogisticRegression();
+            model.setLearningRate(lr);
+            return new FoldModel() {
+                public void train(int epochs) {
+                    model.setIterations(epochs);
+                    model.train(x, y, from, to);
+                }
+
+                public double validationLoss() {
+                    return model.logLoss(x, y, from, to);
+                }
+            };
+        };
+    }
+
+    static ModelFactory multiFeatureFactory(String path, int rows, long seed, int[] size) throws Exception {
+        Dataset data;
+        if (path != null) {
+            data = MultiFeatureLinearRegression.loadData(path);
+        } else {
+            Random random = new Random(seed);
+            data = new Dataset(4, rows);
+            double[] row = new double[4];
+            for (int i = 0; i < rows; i++) {
+                row[0] = 500 + random.nextDouble() * 2500;
+                row[1] = 1 + random.nextInt(5);
+                row[2] = 1 + random.nextInt(3);
+                row[3] = random.nextInt(2);
+                data.add(row, 0.8 * row[0] + 150 * row[1] + 90 * row[2] + 60 * row[3] + random.nextGaussian() * 100);
+            }
+        }
+        size[0] = data.size;
+        return (lr, from, to) -> {
+            // Scaling comes from the training rows only: the two ranges around the fold, merged
+            FeatureStats stats = FeatureStats.of(data, 0, from, 1);
+            stats.merge(FeatureStats.of(data, to, data.size, 1));
+            GradientDescentTrainer trainer = new GradientDescentTrainer(data, lr, 1, from, to);
+            trainer.setScaling(stats);
+            return new FoldModel() {
+                public void train(int epochs) {
+                    for (int e = 0; e < epochs; e++)
+                        trainer.runEpoch();
+                }
+
+                public double validationLoss() {
+                    double[] w = trainer.rawWeights();
+                    double b = trainer.rawBias();
+                    double sum = 0;
+                    for (int i = from; i < to; i++) {
+                        double error = b + LinAlg.dot(w, 0, data.features, i * data.numFeatures, data.numFeatures) - data.labels[i];
+                        sum += error * error;
+                    }
+                    return sum / (to - from);
+                }
+            };
+        };
+    }
+}
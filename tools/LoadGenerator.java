@@ -0,0 +1,123 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for ScoringServer: each client thread sends a request, waits for the
+ * answer and sends the next, for a fixed duration. Reports throughput and latency percentiles.
+ *
+ *   java -cp tools/target/benchmarks.jar LoadGenerator --url http://localhost:8080/predict/housing --features 4
+ *        [--clients 16] [--seconds 10] [--rows 1] [--binary]
+ */
+public class LoadGenerator {
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080/predict/housing";
+        int features = 4, clients = 16, seconds = 10, rows = 1;
+        boolean binary = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url": url = args[++i]; break;
+                case "--features": features = Integer.parseInt(args[++i]); break;
+                case "--clients": clients = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--rows": rows = Integer.parseInt(args[++i]); break;
+                case "--binary": binary = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI target = URI.create(url);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong errors = new AtomicLong();
+
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            final int id = c;
+            final HttpRequest request = buildRequest(target, features, rows, binary, new Random(c));
+            threads[c] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() != 200)
+                            errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (n == samples.length)
+                        samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = (System.nanoTime() - start) / 1000;
+                }
+                latencies[id] = samples;
+                counts[id] = n;
+            });
+            threads[c].start();
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads)
+            thread.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (int count : counts)
+            total += count;
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+
+        System.out.printf(Locale.ROOT, "%d clients, %d rows/request, %s: %,d requests in %.1f s (%d errors)%n",
+                clients, rows, binary ? "binary" : "json", total, elapsed, errors.get());
+        System.out.printf(Locale.ROOT, "%,.0f requests/s, %,.0f rows/s, p50 %d us, p99 %d us, max %d us%n",
+                total / elapsed, total * rows / elapsed, percentile(all, 0.50), percentile(all, 0.99),
+                total == 0 ? 0 : all[total - 1]);
+    }
+
+    private static HttpRequest buildRequest(URI target, int features, int rows, boolean binary, Random random) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target);
+        if (binary) {
+            ByteBuffer body = ByteBuffer.allocate(4 + rows * features * 8).order(ByteOrder.LITTLE_ENDIAN);
+            body.putInt(rows);
+            for (int i = 0; i < rows * features; i++)
+                body.putDouble(random.nextDouble() * 10);
+            return builder.header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.array())).build();
+        }
+        StringBuilder json = new StringBuilder("{\"rows\":[");
+        for (int r = 0; r < rows; r++) {
+            json.append(r == 0 ? "[" : ",[");
+            for (int j = 0; j < features; j++) {
+                if (j > 0)
+                    json.append(',');
+                json.append(random.nextDouble() * 10);
+            }
+            json.append(']');
+        }
+        json.append("]}");
+        return builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json.toString())).build();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The workloads behind the JMH benchmarks in tools/bench: CSV ingestion, one training epoch of
+ * every model, MSE, and single versus batch prediction. The softmax model trains on generated
+ * clusters wide enough for its gemm kernels to matter, at most SOFTMAX_MAX_ROWS of them so large
+ * `rows` still fit the forks' heap; the neural network on the benchmark rows, standardized as
+ * they are read. The benchmarks live in a package, as JMH
+ * requires, and reach these default-package models through bench.ModelWorkloads.
+ *
+ * Build and run from the repository root:
+ *   mvn -B package
+ *   java -jar tools/target/benchmarks.jar -rf json -rff bench.json
+ *
+ * Any JMH option applies, e.g. a subset and larger inputs: TrainingBenchmark -p rows=10000000
+ */
+public class ModelBenchmarks implements bench.ModelWorkloads {
+    private static final int NUM_FEATURES = 4;
+    private static final int SOFTMAX_FEATURES = 32;
+    private static final int SOFTMAX_CLASSES = 10;
+    private static final int SOFTMAX_MAX_ROWS = 1 << 20; // 256 MB of cluster features
+    private static final int[] NETWORK_SIZES = {NUM_FEATURES, 32, 32, 1};
+
+    private Dataset data;
+    private double[] x, y;              // standardized sqft and a linear target, for the single-feature models
+    private int[] classes;
+    private LinearRegression linear;
+    private LogisticRegression logistic;
+    private GradientDescentTrainer gradientDescent;
+    private MiniBatchTrainer miniBatch;
+    private double[] weights;           // closed-form solution over raw features
+    private double bias;
+    private ModelSnapshot snapshot;
+    private double[][] blockRows;       // the first PREDICT_BLOCK rows, one array each for predict()
+    private double[] blockFlat;         // the same rows row-major for predictBatch()
+    private double[] blockOut;
+    private double[] blockX;            // standardized sqft of the same rows for LinearRegression.predict()
+    private SoftmaxRegression softmax;
+    private Dataset clusters;           // at least PREDICT_BLOCK rows
+    private DatasetBatchSource clusterSource;
+    private int[] classOut;
+    private NeuralNetwork network;
+    private double[] means, stds;       // feature scaling for the network
+    private double priceMean, priceStd; // target scaling for the network
+    private final double[] networkRow = new double[NUM_FEATURES];
+    private final double[] networkTarget = new double[1];
+    private double[] networkBlock;      // standardized blockFlat for predictBatch()
+
+    @Override
+    public void writeCsv(Path path, int rows, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("sqft,bed,bath,laundry,price");
+            for (int i = 0; i < rows; i++) {
+                int bed = random.nextInt(5);
+                int sqft = 300 + bed * 350 + random.nextInt(600);
+                double bath = 1 + random.nextInt(Math.max(1, bed * 2)) * 0.5;
+                int laundry = random.nextInt(2);
+                double price = 400 + sqft * 0.6 + laundry * 120 + random.nextGaussian() * 150;
+                out.printf(Locale.ROOT, "%d,%d,%.1f,%d,%.2f%n", sqft, bed, bath, laundry, price);
+            }
+        }
+    }
+
+    @Override
+    public int loadData(String path) throws IOException {
+        return new CsvLoader().load(path).size;
+    }
+
+    @Override
+    public void prepare(String path) throws IOException {
+        data = new CsvLoader().load(path);
+        int rows = data.size;
+        FeatureStats stats = FeatureStats.of(data);
+
+        // Single-feature models train one epoch per call and keep their parameters between calls
+        double mean = stats.means()[0], std = stats.stds()[0];
+        Random random = new Random(7);
+        x = new double[rows];
+        y = new double[rows];
+        classes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = (data.feature(i, 0) - mean) / std;
+            y[i] = 2 * x[i] + 1 + random.nextGaussian() * 0.1;
+            classes[i] = x[i] + random.nextGaussian() * 0.5 > 0 ? 1 : 0;
+        }
+        linear = new LinearRegression();
+        linear.setIterations(1);
+        logistic = new LogisticRegression();
+        logistic.setIterations(1);
+
+        gradientDescent = new GradientDescentTrainer(data, 0.01);
+        gradientDescent.setScaling(stats);
+        miniBatch = new MiniBatchTrainer(new DatasetBatchSource(data, 1),
+                new Optimizer(Optimizer.Type.ADAM, 0.01, NUM_FEATURES + 1), 256);
+        miniBatch.setScaling(stats);
+
+        weights = new double[NUM_FEATURES];
+        bias = NormalEquationSolver.solve(data, weights);
+        double[] ones = new double[NUM_FEATURES];
+        Arrays.fill(ones, 1);
+        snapshot = new ModelSnapshot(1, weights, bias, new double[NUM_FEATURES], ones);
+
+        int block = Math.min(PREDICT_BLOCK, rows);
+        blockRows = new double[PREDICT_BLOCK][];
+        blockFlat = Arrays.copyOf(data.features, PREDICT_BLOCK * NUM_FEATURES);
+        for (int i = 0; i < PREDICT_BLOCK; i++) {
+            int source = i % block;
+            blockRows[i] = Arrays.copyOfRange(data.features, source * NUM_FEATURES, (source + 1) * NUM_FEATURES);
+            System.arraycopy(blockRows[i], 0, blockFlat, i * NUM_FEATURES, NUM_FEATURES);
+        }
+        blockOut = new double[PREDICT_BLOCK];
+        blockX = new double[PREDICT_BLOCK];
+        for (int i = 0; i < PREDICT_BLOCK; i++)
+            blockX[i] = x[i % block];
+
+        clusters = SoftmaxRegression.syntheticClusters(Math.min(Math.max(rows, PREDICT_BLOCK), SOFTMAX_MAX_ROWS),
+                SOFTMAX_FEATURES, SOFTMAX_CLASSES, 4.0, 1, 2);
+        clusterSource = new DatasetBatchSource(clusters, 3);
+        softmax = new SoftmaxRegression(SOFTMAX_FEATURES, SOFTMAX_CLASSES, Optimizer.Type.ADAM, 0.002, 512);
+        classOut = new int[PREDICT_BLOCK];
+
+        network = new NeuralNetwork(NETWORK_SIZES, new NeuralNetwork.Activation[] {
+                NeuralNetwork.Activation.TANH, NeuralNetwork.Activation.TANH, NeuralNetwork.Activation.LINEAR}, 42);
+        means = stats.means();
+        stds = stats.stds();
+        priceMean = 0;
+        priceStd = 0;
+        for (int i = 0; i < rows; i++)
+            priceMean += data.labels[i] / rows;
+        for (int i = 0; i < rows; i++)
+            priceStd += (data.labels[i] - priceMean) * (data.labels[i] - priceMean) / rows;
+        priceStd = Math.max(Math.sqrt(priceStd), 1e-9);
+        networkBlock = new double[PREDICT_BLOCK * NUM_FEATURES];
+        for (int k = 0; k < networkBlock.length; k++)
+            networkBlock[k] = standardize(blockFlat[k], means[k % NUM_FEATURES], stds[k % NUM_FEATURES]);
+    }
+
+    private static double standardize(double value, double mean, double std) {
+        return std != 0 ? (value - mean) / std : value;
+    }
+
+    @Override
+    public double linearEpoch() {
+        linear.train(x, y);
+        return linear.predict(1);
+    }
+
+    @Override
+    public double logisticEpoch() {
+        logistic.train(x, classes);
+        return logistic.predictProbability(1);
+    }
+
+    @Override
+    public double gradientDescentEpoch() {
+        gradientDescent.runEpoch();
+        return gradientDescent.loss;
+    }
+
+    @Override
+    public double miniBatchEpoch() throws IOException {
+        miniBatch.runEpoch();
+        return miniBatch.loss;
+    }
+
+    @Override
+    public double normalEquations() {
+        return NormalEquationSolver.solve(data, new double[NUM_FEATURES]);
+    }
+
+    @Override
+    public double softmaxEpoch() throws IOException {
+        return softmax.runEpoch(clusterSource);
+    }
+
+    @Override
+    public double neuralNetworkEpoch() {
+        double total = 0;
+        for (int i = 0, base = 0; i < data.size; i++, base += NUM_FEATURES) {
+            for (int j = 0; j < NUM_FEATURES; j++)
+                networkRow[j] = standardize(data.features[base + j], means[j], stds[j]);
+            networkTarget[0] = (data.labels[i] - priceMean) / priceStd;
+            total += network.trainSample(networkRow, networkTarget);
+        }
+        return total / data.size;
+    }
+
+    @Override
+    public double computeMSE() {
+        return MultiFeatureLinearRegression.computeMSE(data, weights, bias);
+    }
+
+    @Override
+    public double predictSingle(int row) {
+        return snapshot.predict(blockRows[row]);
+    }
+
+    @Override
+    public double predictBatch() {
+        snapshot.predictBatch(blockFlat, PREDICT_BLOCK, blockOut);
+        return blockOut[PREDICT_BLOCK - 1];
+    }
+
+    @Override
+    public double linearPredict(int row) {
+        return linear.predict(blockX[row]);
+    }
+
+    @Override
+    public int softmaxPredictBatch() {
+        softmax.predictClass(clusters.features, PREDICT_BLOCK, classOut);
+        return classOut[PREDICT_BLOCK - 1];
+    }
+
+    @Override
+    public double neuralNetworkPredictBatch() {
+        network.predictBatch(networkBlock, PREDICT_BLOCK, blockOut);
+        return blockOut[PREDICT_BLOCK - 1];
+    }
+
+    @Override
+    public void shutdown() {
+        if (gradientDescent != null)
+            gradientDescent.shutdown();
+        if (softmax != null)
+            softmax.shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV ingestion through the multi-feature loader, on a generated file of `rows` rows. The
+ * loaded Dataset holds 40 bytes per row, so the default 2 GB heap takes up to about
+ * -p rows=20000000. For more, raise the heap too: -p rows=100000000 -jvmArgs "-Xms8g -Xmx8g"
+ * (-jvmArgs replaces the heap settings below; the Vector API flag is appended either way).
+ * Each forked JVM writes its own copy of the file to the temp directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"}, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class IngestionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    ModelWorkloads models;
+    Path csv;
+
+    @Setup
+    public void writeFile() throws IOException {
+        models = ModelWorkloads.create();
+        csv = Files.createTempFile("javai-bench-" + rows + "-", ".csv");
+        models.writeCsv(csv, rows, 42);
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public int loadData() throws IOException {
+        return models.loadData(csv.toString());
+    }
+}
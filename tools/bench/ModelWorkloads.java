@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The model code the JMH benchmarks drive. JMH only accepts benchmarks in a named package, and
+ * named packages cannot refer to the default-package model classes, so the benchmarks call them
+ * through this interface, which ModelBenchmarks implements. There is one implementation, so the
+ * calls stay monomorphic and the JIT inlines them like direct calls.
+ */
+public interface ModelWorkloads {
+    // Rows scored by the prediction benchmarks; single and batch calls see the same rows
+    int PREDICT_BLOCK = 1024;
+
+    static ModelWorkloads create() {
+        try {
+            return (ModelWorkloads) Class.forName("ModelBenchmarks").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("ModelBenchmarks is not on the classpath", e);
+        }
+    }
+
+    // Housing-like rows: sqft, bedrooms, bathrooms, laundry, price
+    void writeCsv(Path path, int rows, long seed) throws IOException;
+
+    // Parses the CSV with the loader behind MultiFeatureLinearRegression.loadData; returns the row count
+    int loadData(String path) throws IOException;
+
+    // Loads the CSV once and sets up every model below on its rows
+    void prepare(String path) throws IOException;
+
+    // One full pass over the rows; each returns a value so JMH can consume it
+    double linearEpoch();
+    double logisticEpoch();
+    double gradientDescentEpoch();
+    double miniBatchEpoch() throws IOException;
+    double normalEquations();
+    double computeMSE();
+    double softmaxEpoch() throws IOException;     // SoftmaxRegression over generated clusters
+    double neuralNetworkEpoch();                  // per-sample SGD through NeuralNetwork
+
+    // ModelSnapshot.predict on row (of the first PREDICT_BLOCK rows)
+    double predictSingle(int row);
+
+    // ModelSnapshot.predictBatch over the first PREDICT_BLOCK rows
+    double predictBatch();
+
+    // LinearRegression.predict on the row's first feature
+    double linearPredict(int row);
+
+    // SoftmaxRegression.predictClass over PREDICT_BLOCK generated cluster rows
+    int softmaxPredictBatch();
+
+    // NeuralNetwork.predictBatch over the first PREDICT_BLOCK rows, standardized
+    double neuralNetworkPredictBatch();
+
+    void shutdown();
+}
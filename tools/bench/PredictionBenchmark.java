@@ -0,0 +1,81 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single versus batch prediction throughput in rows per microsecond. The single benchmarks
+ * score one row per call through the models' predict methods, cycling over PREDICT_BLOCK
+ * rows. The batch benchmark scores the same block in one predictBatch call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PredictionBenchmark {
+    ModelWorkloads models;
+    int next;
+
+    @Setup
+    public void prepare() throws IOException {
+        models = ModelWorkloads.create();
+        Path csv = Files.createTempFile("javai-bench-predict-", ".csv");
+        try {
+            models.writeCsv(csv, ModelWorkloads.PREDICT_BLOCK, 42);
+            models.prepare(csv.toString());
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @TearDown
+    public void shutdown() {
+        models.shutdown();
+    }
+
+    @Benchmark
+    public double multiFeaturePredictSingle() {
+        next = (next + 1) & (ModelWorkloads.PREDICT_BLOCK - 1);
+        return models.predictSingle(next);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ModelWorkloads.PREDICT_BLOCK)
+    public double multiFeaturePredictBatch() {
+        return models.predictBatch();
+    }
+
+    @Benchmark
+    public double linearPredictSingle() {
+        next = (next + 1) & (ModelWorkloads.PREDICT_BLOCK - 1);
+        return models.linearPredict(next);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ModelWorkloads.PREDICT_BLOCK)
+    public int softmaxPredictBatch() {
+        return models.softmaxPredictBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ModelWorkloads.PREDICT_BLOCK)
+    public double neuralNetworkPredictBatch() {
+        return models.neuralNetworkPredictBatch();
+    }
+}
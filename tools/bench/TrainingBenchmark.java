@@ -0,0 +1,93 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of one training epoch for every model, plus the closed-form solve and computeMSE, over
+ * `rows` generated rows. Models keep training across invocations, so the measured epochs are
+ * steady-state passes over warm data rather than the first few passes of a fresh model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g"}, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class TrainingBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    ModelWorkloads models;
+
+    @Setup
+    public void prepare() throws IOException {
+        models = ModelWorkloads.create();
+        Path csv = Files.createTempFile("javai-bench-" + rows + "-", ".csv");
+        try {
+            models.writeCsv(csv, rows, 42);
+            models.prepare(csv.toString());
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @TearDown
+    public void shutdown() {
+        models.shutdown();
+    }
+
+    @Benchmark
+    public double linearEpoch() {
+        return models.linearEpoch();
+    }
+
+    @Benchmark
+    public double logisticEpoch() {
+        return models.logisticEpoch();
+    }
+
+    @Benchmark
+    public double gradientDescentEpoch() {
+        return models.gradientDescentEpoch();
+    }
+
+    @Benchmark
+    public double miniBatchEpoch() throws IOException {
+        return models.miniBatchEpoch();
+    }
+
+    @Benchmark
+    public double softmaxEpoch() throws IOException {
+        return models.softmaxEpoch();
+    }
+
+    @Benchmark
+    public double neuralNetworkEpoch() {
+        return models.neuralNetworkEpoch();
+    }
+
+    @Benchmark
+    public double normalEquations() {
+        return models.normalEquations();
+    }
+
+    @Benchmark
+    public double computeMSE() {
+        return models.computeMSE();
+    }
+}